@@ -1,23 +1,33 @@
 package com.developer.analytics;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.developer.analytics.bot.BotClassifier;
+import com.developer.analytics.dedup.DedupVerdict;
+import com.developer.analytics.dedup.VisitorSessionCache;
 import com.developer.analytics.dto.AnalyticsTrackingRequest;
-import com.developer.entity.User;
-import com.developer.repository.UserRepository;
+import com.developer.analytics.ingestion.AnalyticsEventBatchWriter;
+import com.developer.analytics.ingestion.AnalyticsIngestionProperties;
+import com.developer.analytics.ingestion.AsyncAnalyticsEventWriter;
+import com.developer.analytics.ingestion.PendingAnalyticsEvent;
+import com.developer.analytics.spool.AnalyticsEventSpool;
+import com.developer.service.UserIdCache;
 
 /**
  * Service for tracking portfolio analytics events with production-grade filtering:
  * - Excludes self-views (portfolio owner viewing their own portfolio)
  * - De-duplicates repeat views (30-minute window per visitor)
  * - Filters bots and crawlers by User-Agent
+ * - Enforces de-duplication in the database as well (unique dedup key claimed on insert),
+ *   so concurrent requests on different nodes cannot both be counted
  * - Validates event flow (ENGAGED must have a corresponding VIEW)
  * - Validates engagement conditions (duration >= 30s OR scroll >= 50%)
  * - Filters low-quality ENGAGED events (duration < 2 seconds)
@@ -26,6 +36,17 @@ import com.developer.repository.UserRepository;
  * - VIEW events: Tracked immediately on page load (duration can be 0)
  * - ENGAGED events: Only tracked if engagement criteria are met and a VIEW exists
  * - All validation failures are silent to never block portfolio rendering
+ * - Batches of events are validated and de-duplicated in one pass and written with a single insert
+ * - In ASYNC ingestion mode accepted events are queued and written in batches off the request thread
+ * - Events that cannot be written (database failing or backing off) are spooled to local disk for replay
+ * - Every stored event marks its portfolio dirty so the scheduler only re-aggregates changed portfolios
+ * - Stored VIEW events feed the per-day unique visitor sketches
+ * - Stored events update live summary counters so dashboards move between aggregation runs
+ *   (these three are applied by {@link AnalyticsEventBatchWriter} once the rows are inserted)
+ * - Accepted events that are dropped instead of stored are released from the visitor session cache
+ *
+ * Tracking methods are deliberately not transactional: every write commits on its own, so a
+ * failure surfaces inside the method (where it can be spooled) rather than at commit time.
  */
 @Service
 public class PortfolioAnalyticsService {
@@ -33,7 +54,7 @@ public class PortfolioAnalyticsService {
     private static final Logger logger = LoggerFactory.getLogger(PortfolioAnalyticsService.class);
 
     // De-duplication window: 30 minutes
-    private static final int DEDUPLICATION_WINDOW_MINUTES = 30;
+    public static final int DEDUPLICATION_WINDOW_MINUTES = 30;
     
     // Engagement threshold: 30 seconds
     private static final int ENGAGEMENT_THRESHOLD_SECONDS = 30;
@@ -44,14 +65,34 @@ public class PortfolioAnalyticsService {
     // Minimum duration to avoid noise: 2 seconds
     private static final int MIN_DURATION_SECONDS = 2;
 
-    private final PortfolioAnalyticsEventRepository analyticsEventRepository;
-    private final UserRepository userRepository;
+    // Longest visitor ID the visitor dictionary can store (analytics_visitor.visitor_id)
+    public static final int MAX_VISITOR_ID_LENGTH = 255;
+
+    private final UserIdCache userIdCache;
+    private final AnalyticsIngestionProperties ingestionProperties;
+    private final AsyncAnalyticsEventWriter asyncEventWriter;
+    private final AnalyticsEventBatchWriter batchWriter;
+    private final AnalyticsEventSpool spool;
+    private final VisitorSessionCache visitorSessionCache;
+    private final BotClassifier botClassifier;
+
+    private final AtomicLong droppedCount = new AtomicLong();
 
     public PortfolioAnalyticsService(
-            PortfolioAnalyticsEventRepository analyticsEventRepository,
-            UserRepository userRepository) {
-        this.analyticsEventRepository = analyticsEventRepository;
-        this.userRepository = userRepository;
+            UserIdCache userIdCache,
+            AnalyticsIngestionProperties ingestionProperties,
+            AsyncAnalyticsEventWriter asyncEventWriter,
+            AnalyticsEventBatchWriter batchWriter,
+            AnalyticsEventSpool spool,
+            VisitorSessionCache visitorSessionCache,
+            BotClassifier botClassifier) {
+        this.userIdCache = userIdCache;
+        this.ingestionProperties = ingestionProperties;
+        this.asyncEventWriter = asyncEventWriter;
+        this.batchWriter = batchWriter;
+        this.spool = spool;
+        this.visitorSessionCache = visitorSessionCache;
+        this.botClassifier = botClassifier;
     }
 
     /**
@@ -64,184 +105,331 @@ public class PortfolioAnalyticsService {
      * @param authenticatedUserId The ID of the authenticated user (null if unauthenticated)
      * @param userAgent The User-Agent header from the request
      */
-    @Transactional
     public void trackEvent(String username, AnalyticsTrackingRequest request, String visitorId,
                           UUID authenticatedUserId, String userAgent) {
         try {
             // STEP 1: VALIDATE PAYLOAD
-            if (request == null || request.getEventType() == null) {
-                logger.debug("Invalid tracking request: missing event type for username: {}", username);
+            if (!isValidPayload(username, request, visitorId)) {
                 return; // Fail silently
             }
 
-            AnalyticsEventType eventType = request.getEventType();
-
-            // Validate duration if provided (must be non-negative)
-            if (request.getDurationSeconds() != null && request.getDurationSeconds() < 0) {
-                logger.debug("Invalid duration seconds (negative) for username: {}", username);
+            // STEPS 2-4: RESOLVE OWNER, EXCLUDE SELF-VIEWS AND BOTS
+            UUID portfolioUserId = resolveTrackablePortfolio(username, authenticatedUserId, userAgent);
+            if (portfolioUserId == null) {
                 return; // Fail silently
             }
 
-            // Validate scroll depth if provided (must be 0-100)
-            if (request.getScrollDepth() != null && 
-                (request.getScrollDepth() < 0 || request.getScrollDepth() > 100)) {
-                logger.debug("Invalid scroll depth (out of range) for username: {}", username);
+            // STEP 5: EVENT-SPECIFIC VALIDATION AND DE-DUPLICATION
+            PendingAnalyticsEvent pending = evaluate(username, portfolioUserId, request, visitorId, userAgent);
+            if (pending == null) {
                 return; // Fail silently
             }
 
-            // Validate visitor ID
-            if (visitorId == null || visitorId.isBlank() || "anonymous".equals(visitorId)) {
-                logger.debug("Missing or invalid visitor ID for username: {}", username);
-                return; // Fail silently
+            // STEP 6: PERSIST EVENT
+            if (ingestionProperties.isAsync()) {
+                // Hand off to the background writer - never blocks on the database
+                if (!asyncEventWriter.enqueue(pending)) {
+                    return; // Dropped under backpressure - counted by the writer
+                }
+            } else if (!spool.isDatabaseAvailable()) {
+                // Database recently failed - don't make the visitor wait on a connection timeout
+                spoolOrDrop(List.of(pending));
+            } else {
+                int written;
+                try {
+                    // Same writer as batches, so the trend rollups and dedup keys are maintained on every path
+                    written = batchWriter.writeBatch(List.of(pending));
+                } catch (RuntimeException e) {
+                    handleWriteFailure(List.of(pending), e);
+                    return;
+                }
+                if (written == 0) {
+                    // Another node accepted the same visit first - the database dedup key rejected this one.
+                    // The visitor session keeps its mark, since the visit is stored.
+                    logger.debug("Duplicate {} rejected by database for visitor: {} on portfolio: {}",
+                            pending.eventType(), visitorId, username);
+                    return;
+                }
             }
 
-            // STEP 2: RESOLVE PORTFOLIO OWNER
-            User portfolioUser = userRepository.findByUsername(username)
-                    .orElse(null);
+            logger.debug("Analytics event tracked successfully: {} for portfolio owner: {} (visitor: {}, duration: {}s, scroll: {}%)", 
+                    pending.eventType(), username, visitorId, 
+                    request.getDurationSeconds() != null ? request.getDurationSeconds() : "null",
+                    request.getScrollDepth() != null ? request.getScrollDepth() : "null");
 
-            if (portfolioUser == null) {
-                logger.debug("Portfolio owner not found for username: {}", username);
-                return; // Fail silently
-            }
+        } catch (Exception e) {
+            // Fail silently - log only
+            logger.warn("Failed to track analytics event for username: {} (event: {}). Error: {}", 
+                    username, request != null ? request.getEventType() : "null", e.getMessage(), e);
+        }
+    }
 
-            // STEP 3: SELF-VIEW EXCLUSION
-            // If authenticated user is viewing their own portfolio, ignore the event
-            if (authenticatedUserId != null && authenticatedUserId.equals(portfolioUser.getId())) {
-                logger.debug("Self-view excluded for portfolio owner: {} (visitor: {})", username, visitorId);
-                return; // Fail silently
+    /**
+     * Tracks a batch of analytics events for one portfolio.
+     * The owner lookup, self-view and bot checks run once for the whole batch; each event is then
+     * validated and de-duplicated in order (so a VIEW earlier in the batch unlocks a later ENGAGED),
+     * and all accepted events are written with a single multi-row insert.
+     * Fails silently on errors to never block portfolio rendering.
+     *
+     * @param username The username of the portfolio owner
+     * @param requests The tracking requests; each must carry its resolved visitor ID
+     * @param authenticatedUserId The ID of the authenticated user (null if unauthenticated)
+     * @param userAgent The User-Agent header from the request
+     */
+    public void trackEvents(String username, List<AnalyticsTrackingRequest> requests,
+                            UUID authenticatedUserId, String userAgent) {
+        try {
+            if (requests == null || requests.isEmpty()) {
+                return;
             }
 
-            // STEP 4: BOT FILTERING (User-Agent based)
-            // Check for bots/crawlers - this applies to all event types
-            if (isBot(userAgent)) {
-                logger.debug("Bot/crawler filtered for username: {} (user-agent: {})", username, userAgent);
+            UUID portfolioUserId = resolveTrackablePortfolio(username, authenticatedUserId, userAgent);
+            if (portfolioUserId == null) {
                 return; // Fail silently
             }
 
-            // Calculate de-duplication window
-            Instant sinceTime = Instant.now().minus(DEDUPLICATION_WINDOW_MINUTES, ChronoUnit.MINUTES);
-
-            // STEP 5: EVENT-SPECIFIC VALIDATION AND DE-DUPLICATION
-            if (eventType == AnalyticsEventType.VIEW) {
-                // VIEW events: Track immediately on page load (duration can be 0)
-                // Only filter if it's a duplicate within the time window
-                if (analyticsEventRepository.existsViewEventForVisitorSince(
-                        portfolioUser.getId(), visitorId, sinceTime)) {
-                    logger.debug("Duplicate VIEW filtered for visitor: {} on portfolio: {} (within {} minutes)", 
-                            visitorId, username, DEDUPLICATION_WINDOW_MINUTES);
-                    return; // Fail silently
+            List<PendingAnalyticsEvent> accepted = new ArrayList<>(requests.size());
+            for (AnalyticsTrackingRequest request : requests) {
+                String visitorId = request != null ? request.getVisitorId() : null;
+                if (!isValidPayload(username, request, visitorId)) {
+                    continue;
                 }
-                
-                // VIEW events are always valid - no duration requirement
-                // They represent a page visit, even if duration is 0
-                
-            } else if (eventType == AnalyticsEventType.ENGAGED) {
-                // ENGAGED events: Must have a corresponding VIEW first
-                var recentViewOptional = analyticsEventRepository
-                        .findMostRecentViewEventForVisitor(portfolioUser.getId(), visitorId, sinceTime);
-                
-                if (recentViewOptional.isEmpty()) {
-                    logger.debug("ENGAGED event without VIEW filtered for visitor: {} on portfolio: {}", 
-                            visitorId, username);
-                    return; // Fail silently
+                PendingAnalyticsEvent pending = evaluate(username, portfolioUserId, request, visitorId, userAgent);
+                if (pending != null) {
+                    accepted.add(pending);
                 }
+            }
 
-                // Check for duplicate ENGAGED events
-                if (analyticsEventRepository.existsEngagedEventForVisitorSince(
-                        portfolioUser.getId(), visitorId, sinceTime)) {
-                    logger.debug("Duplicate ENGAGED filtered for visitor: {} on portfolio: {}", 
-                            visitorId, username);
-                    return; // Fail silently
-                }
+            if (accepted.isEmpty()) {
+                return;
+            }
 
-                // Validate engagement criteria
-                // ENGAGED must meet at least one of:
-                // - Duration >= 30 seconds, OR
-                // - Scroll depth >= 50%
-                boolean meetsEngagementCriteria = false;
-                
-                if (request.getDurationSeconds() != null && 
-                    request.getDurationSeconds() >= ENGAGEMENT_THRESHOLD_SECONDS) {
-                    meetsEngagementCriteria = true;
-                }
-                
-                if (!meetsEngagementCriteria && request.getScrollDepth() != null && 
-                    request.getScrollDepth() >= ENGAGEMENT_SCROLL_DEPTH_PERCENT) {
-                    meetsEngagementCriteria = true;
+            int tracked = accepted.size();
+            if (ingestionProperties.isAsync()) {
+                for (PendingAnalyticsEvent pending : accepted) {
+                    if (!asyncEventWriter.enqueue(pending)) {
+                        tracked--; // Dropped under backpressure - counted by the writer
+                    }
                 }
-
-                if (!meetsEngagementCriteria) {
-                    logger.debug("ENGAGED event does not meet engagement criteria (duration: {}, scroll: {}) for visitor: {} on portfolio: {}", 
-                            request.getDurationSeconds(), request.getScrollDepth(), visitorId, username);
-                    return; // Fail silently
+                if (tracked == 0) {
+                    return;
                 }
-
-                // Filter low-quality ENGAGED events (duration < 2 seconds is likely noise)
-                // This only applies to ENGAGED events, not VIEW events
-                if (request.getDurationSeconds() != null && 
-                    request.getDurationSeconds() < MIN_DURATION_SECONDS) {
-                    logger.debug("Low-quality ENGAGED event filtered (duration < {}s) for visitor: {} on portfolio: {}", 
-                            MIN_DURATION_SECONDS, visitorId, username);
-                    return; // Fail silently
+            } else if (!spool.isDatabaseAvailable()) {
+                spoolOrDrop(accepted);
+            } else {
+                try {
+                    batchWriter.writeBatch(accepted);
+                } catch (RuntimeException e) {
+                    handleWriteFailure(accepted, e);
+                    return;
                 }
             }
 
-            // STEP 6: CREATE AND PERSIST EVENT
-            PortfolioAnalyticsEvent event = new PortfolioAnalyticsEvent();
-            event.setPortfolioUser(portfolioUser);
-            event.setVisitorId(visitorId);
-            event.setEventType(eventType);
-            event.setDurationSeconds(request.getDurationSeconds());
-            event.setScrollDepth(request.getScrollDepth());
-            event.setUserAgent(userAgent != null && userAgent.length() > 512 
-                    ? userAgent.substring(0, 512) : userAgent);
-
-            analyticsEventRepository.save(event);
-
-            logger.debug("Analytics event tracked successfully: {} for portfolio owner: {} (visitor: {}, duration: {}s, scroll: {}%)", 
-                    eventType, username, visitorId, 
-                    request.getDurationSeconds() != null ? request.getDurationSeconds() : "null",
-                    request.getScrollDepth() != null ? request.getScrollDepth() : "null");
+            logger.debug("Analytics batch tracked for portfolio owner: {} ({}/{} event(s) accepted)",
+                    username, tracked, requests.size());
 
         } catch (Exception e) {
             // Fail silently - log only
-            logger.warn("Failed to track analytics event for username: {} (event: {}). Error: {}", 
-                    username, request != null ? request.getEventType() : "null", e.getMessage(), e);
+            logger.warn("Failed to track analytics batch for username: {}. Error: {}", username, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Handles a failed synchronous write. Connectivity failures trip the spool's circuit breaker
+     * and park the events on disk; data errors would fail again on replay, so those events are dropped.
+     */
+    private void handleWriteFailure(List<PendingAnalyticsEvent> events, RuntimeException failure) {
+        if (!AnalyticsEventSpool.isDatabaseUnavailable(failure)) {
+            droppedCount.addAndGet(events.size());
+            releaseSessions(events);
+            logger.error("Database rejected {} analytics event(s), dropped: {}",
+                    events.size(), failure.getMessage(), failure);
+            return;
+        }
+        spool.markDatabaseFailure();
+        if (spoolOrDrop(events)) {
+            logger.warn("Database write failed, spooled {} analytics event(s): {}", events.size(), failure.getMessage());
+        }
+    }
+
+    /**
+     * Parks events in the local spool, counting them as dropped if it is disabled or full.
+     *
+     * @return true if the events were spooled
+     */
+    private boolean spoolOrDrop(List<PendingAnalyticsEvent> events) {
+        if (spool.append(events)) {
+            return true;
+        }
+        releaseSessions(events);
+        long dropped = droppedCount.addAndGet(events.size());
+        // Log the first drop and then roughly every 1000th to avoid flooding logs during an outage
+        if (dropped == events.size() || dropped / 1000 != (dropped - events.size()) / 1000) {
+            logger.warn("Database unavailable and spool disabled or full, {} analytics event(s) dropped so far", dropped);
+        }
+        return false;
+    }
+
+    /**
+     * Lets the visitors of dropped events be tracked again, as if the events had never been accepted.
+     */
+    private void releaseSessions(List<PendingAnalyticsEvent> events) {
+        for (PendingAnalyticsEvent event : events) {
+            visitorSessionCache.release(event.portfolioUserId(), event.visitorId(), event.eventType());
         }
     }
 
     /**
-     * Checks if the request is from a bot or crawler based on User-Agent.
-     * This method only checks User-Agent patterns, not duration.
-     * Duration-based filtering is handled separately for ENGAGED events.
-     * 
-     * @param userAgent The User-Agent header
-     * @return true if the request is from a bot/crawler and should be filtered out
+     * @return Accepted events lost because they could be neither written nor spooled
      */
-    private boolean isBot(String userAgent) {
-        if (userAgent == null || userAgent.isBlank()) {
-            // Missing User-Agent might indicate a bot, but we'll allow it
-            // to avoid false positives (some legitimate clients don't send User-Agent)
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Validates the shape of a single tracking payload.
+     */
+    private boolean isValidPayload(String username, AnalyticsTrackingRequest request, String visitorId) {
+        if (request == null || request.getEventType() == null) {
+            logger.debug("Invalid tracking request: missing event type for username: {}", username);
+            return false;
+        }
+
+        // Validate duration if provided (must be non-negative)
+        if (request.getDurationSeconds() != null && request.getDurationSeconds() < 0) {
+            logger.debug("Invalid duration seconds (negative) for username: {}", username);
             return false;
         }
 
-        String userAgentLower = userAgent.toLowerCase();
-        String[] botPatterns = {
-            "bot", "crawler", "spider", "scraper",
-            "preview", "facebookexternalhit", "twitterbot",
-            "linkedinbot", "whatsapp", "telegram", "slackbot",
-            "googlebot", "bingbot", "yandexbot", "baiduspider",
-            "headless", "phantom", "selenium", "webdriver",
-            "curl", "wget", "python-requests", "java/"
-        };
-        
-        for (String pattern : botPatterns) {
-            if (userAgentLower.contains(pattern)) {
-                return true;
+        // Validate scroll depth if provided (must be 0-100)
+        if (request.getScrollDepth() != null && 
+            (request.getScrollDepth() < 0 || request.getScrollDepth() > 100)) {
+            logger.debug("Invalid scroll depth (out of range) for username: {}", username);
+            return false;
+        }
+
+        // Validate visitor ID
+        if (visitorId == null || visitorId.isBlank() || "anonymous".equals(visitorId)) {
+            logger.debug("Missing or invalid visitor ID for username: {}", username);
+            return false;
+        }
+
+        // Header IDs bypass bean validation; an over-long ID would fail the whole batch write
+        if (visitorId.length() > MAX_VISITOR_ID_LENGTH) {
+            logger.debug("Visitor ID longer than {} characters rejected for username: {}",
+                    MAX_VISITOR_ID_LENGTH, username);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Resolves the portfolio owner and applies the request-level filters.
+     *
+     * @return The portfolio owner's ID, or null if events for this request must be ignored
+     */
+    private UUID resolveTrackablePortfolio(String username, UUID authenticatedUserId, String userAgent) {
+        // STEP 2: RESOLVE PORTFOLIO OWNER (cached, unknown usernames are negatively cached)
+        UUID portfolioUserId = userIdCache.findIdByUsername(username).orElse(null);
+
+        if (portfolioUserId == null) {
+            logger.debug("Portfolio owner not found for username: {}", username);
+            return null;
+        }
+
+        // STEP 3: SELF-VIEW EXCLUSION
+        // If authenticated user is viewing their own portfolio, ignore the event
+        if (authenticatedUserId != null && authenticatedUserId.equals(portfolioUserId)) {
+            logger.debug("Self-view excluded for portfolio owner: {}", username);
+            return null;
+        }
+
+        // STEP 4: BOT FILTERING (User-Agent based)
+        // Check for bots/crawlers - this applies to all event types
+        if (botClassifier.isBot(userAgent)) {
+            logger.debug("Bot/crawler filtered for username: {} (user-agent: {})", username, userAgent);
+            return null;
+        }
+
+        return portfolioUserId;
+    }
+
+    /**
+     * Applies event-specific validation and de-duplication to a single event.
+     *
+     * @return The event to persist, or null if it was filtered out
+     */
+    private PendingAnalyticsEvent evaluate(String username, UUID portfolioUserId,
+                                           AnalyticsTrackingRequest request, String visitorId, String userAgent) {
+        AnalyticsEventType eventType = request.getEventType();
+
+        // VIEW events are always valid - no duration requirement
+        // They represent a page visit, even if duration is 0
+        if (eventType == AnalyticsEventType.ENGAGED) {
+            // Validate engagement criteria
+            // ENGAGED must meet at least one of:
+            // - Duration >= 30 seconds, OR
+            // - Scroll depth >= 50%
+            boolean meetsEngagementCriteria = false;
+            
+            if (request.getDurationSeconds() != null && 
+                request.getDurationSeconds() >= ENGAGEMENT_THRESHOLD_SECONDS) {
+                meetsEngagementCriteria = true;
+            }
+            
+            if (!meetsEngagementCriteria && request.getScrollDepth() != null && 
+                request.getScrollDepth() >= ENGAGEMENT_SCROLL_DEPTH_PERCENT) {
+                meetsEngagementCriteria = true;
+            }
+
+            if (!meetsEngagementCriteria) {
+                logger.debug("ENGAGED event does not meet engagement criteria (duration: {}, scroll: {}) for visitor: {} on portfolio: {}", 
+                        request.getDurationSeconds(), request.getScrollDepth(), visitorId, username);
+                return null;
+            }
+
+            // Filter low-quality ENGAGED events (duration < 2 seconds is likely noise)
+            // This only applies to ENGAGED events, not VIEW events
+            if (request.getDurationSeconds() != null && 
+                request.getDurationSeconds() < MIN_DURATION_SECONDS) {
+                logger.debug("Low-quality ENGAGED event filtered (duration < {}s) for visitor: {} on portfolio: {}", 
+                        MIN_DURATION_SECONDS, visitorId, username);
+                return null;
+            }
+        }
+
+        // De-duplication (in-memory visitor session, atomic per visitor)
+        // Runs after content validation so a rejected event never marks the session
+        DedupVerdict verdict = visitorSessionCache.tryAccept(portfolioUserId, visitorId, eventType);
+        switch (verdict) {
+            case DUPLICATE_VIEW -> {
+                logger.debug("Duplicate VIEW filtered for visitor: {} on portfolio: {} (within {} minutes)", 
+                        visitorId, username, DEDUPLICATION_WINDOW_MINUTES);
+                return null;
+            }
+            case ENGAGED_WITHOUT_VIEW -> {
+                // ENGAGED events: Must have a corresponding VIEW first
+                logger.debug("ENGAGED event without VIEW filtered for visitor: {} on portfolio: {}", 
+                        visitorId, username);
+                return null;
+            }
+            case DUPLICATE_ENGAGED -> {
+                logger.debug("Duplicate ENGAGED filtered for visitor: {} on portfolio: {}", 
+                        visitorId, username);
+                return null;
+            }
+            case ACCEPTED -> {
+                // Continue to persistence
             }
         }
 
-        return false;
+        String truncatedUserAgent = userAgent != null && userAgent.length() > 512
+                ? userAgent.substring(0, 512) : userAgent;
+
+        return new PendingAnalyticsEvent(
+                UUID.randomUUID(), portfolioUserId, visitorId, eventType,
+                request.getDurationSeconds(), request.getScrollDepth(), truncatedUserAgent,
+                Instant.now());
     }
 }
-
@@ -1,8 +1,18 @@
 package com.developer.analytics;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,28 +25,41 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.developer.analytics.dto.AnalyticsTrackingRequest;
-import com.developer.entity.User;
-import com.developer.repository.UserRepository;
+import com.developer.analytics.ratelimit.TrackingRateLimiter;
+import com.developer.service.UserIdCache;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/public/portfolio")
 @Validated
 public class PublicAnalyticsController {
 
+    private static final Logger logger = LoggerFactory.getLogger(PublicAnalyticsController.class);
+
     private static final String VISITOR_ID_HEADER = "X-Visitor-Id";
     private static final String USER_AGENT_HEADER = "User-Agent";
 
+    // Upper bound on events accepted in one batch request; the rest are ignored
+    private static final int MAX_BATCH_SIZE = 50;
+
     private final PortfolioAnalyticsService analyticsService;
-    private final UserRepository userRepository;
+    private final UserIdCache userIdCache;
+    private final ObjectMapper objectMapper;
+    private final TrackingRateLimiter rateLimiter;
 
     public PublicAnalyticsController(
             PortfolioAnalyticsService analyticsService,
-            UserRepository userRepository) {
+            UserIdCache userIdCache,
+            ObjectMapper objectMapper,
+            TrackingRateLimiter rateLimiter) {
         this.analyticsService = analyticsService;
-        this.userRepository = userRepository;
+        this.userIdCache = userIdCache;
+        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
     }
 
     /**
@@ -48,7 +71,8 @@ public class PublicAnalyticsController {
      * @param request The tracking request containing event type, duration, and scroll depth
      * @param visitorIdHeader The visitor ID from header (preferred, optional fallback to request body)
      * @param httpRequest The HTTP request to extract User-Agent and other headers
-     * @return 204 No Content on success (always returns success to never block portfolio rendering)
+     * @return 204 No Content on success (always returns success to never block portfolio rendering),
+     *         or 429 Too Many Requests when the client, portfolio or visitor is over its rate limit
      */
     @PostMapping("/{username}/track")
     public ResponseEntity<Void> trackEvent(
@@ -63,13 +87,11 @@ public class PublicAnalyticsController {
         }
 
         // Extract visitor ID with priority: header > request body
-        // Header is preferred as it's more reliable and doesn't require request body parsing
-        String visitorId = null;
-        if (visitorIdHeader != null && !visitorIdHeader.isBlank() && !visitorIdHeader.equals("anonymous")) {
-            visitorId = visitorIdHeader.trim();
-        } else if (request != null && request.getVisitorId() != null && 
-                   !request.getVisitorId().isBlank() && !request.getVisitorId().equals("anonymous")) {
-            visitorId = request.getVisitorId().trim();
+        String visitorId = resolveVisitorId(visitorIdHeader, request);
+
+        // Flood protection - rejected before any database access
+        if (!rateLimiter.tryAcquire(httpRequest.getRemoteAddr(), username, visitorId, 1)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
         }
 
         // If visitor ID is still null or invalid, service will reject it
@@ -90,6 +112,106 @@ public class PublicAnalyticsController {
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
 
+    /**
+     * Tracks several analytics events for a public portfolio in one request.
+     * Accepts a JSON array of tracking requests sent as {@code application/json} or as
+     * {@code text/plain} (the content type used by {@code navigator.sendBeacon}).
+     * Fails silently to never block portfolio rendering.
+     *
+     * @param username The username of the portfolio owner
+     * @param body The raw JSON array of tracking requests
+     * @param visitorIdHeader The visitor ID from header (applies to every event when present)
+     * @param httpRequest The HTTP request to extract User-Agent and other headers
+     * @return 204 No Content (always returns success to never block portfolio rendering),
+     *         or 429 Too Many Requests when over the rate limit (each event costs one token).
+     *         Events of a visitor over its own limit are dropped; 429 if that leaves none
+     */
+    @PostMapping(value = "/{username}/track/batch",
+            consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE })
+    public ResponseEntity<Void> trackEvents(
+            @PathVariable String username,
+            @RequestBody(required = false) String body,
+            @RequestHeader(value = VISITOR_ID_HEADER, required = false) String visitorIdHeader,
+            HttpServletRequest httpRequest) {
+
+        if (username == null || username.isBlank() || body == null || body.isBlank()) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+
+        // Parse manually so text/plain beacon payloads are handled like JSON
+        List<AnalyticsTrackingRequest> requests;
+        try {
+            AnalyticsTrackingRequest[] parsed = objectMapper.readValue(body, AnalyticsTrackingRequest[].class);
+            requests = parsed == null ? List.of() : Arrays.asList(parsed);
+        } catch (JacksonException e) {
+            logger.debug("Ignoring malformed analytics batch for username: {}", username);
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+
+        if (requests.size() > MAX_BATCH_SIZE) {
+            requests = requests.subList(0, MAX_BATCH_SIZE);
+        }
+
+        // Flood protection - rejected before any database access
+        if (!rateLimiter.tryAcquire(httpRequest.getRemoteAddr(), username, null, requests.size())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+
+        // Normalize each event's visitor ID with the same priority as the single endpoint
+        Map<String, Integer> eventsPerVisitor = new HashMap<>();
+        for (AnalyticsTrackingRequest request : requests) {
+            if (request != null) {
+                request.setVisitorId(resolveVisitorId(visitorIdHeader, request));
+                if (request.getVisitorId() != null) {
+                    eventsPerVisitor.merge(request.getVisitorId(), 1, Integer::sum);
+                }
+            }
+        }
+
+        // Per-visitor limit applies to the ids the events actually carry, not just the header
+        Set<String> limitedVisitors = new HashSet<>();
+        eventsPerVisitor.forEach((visitorId, events) -> {
+            if (!rateLimiter.tryAcquireVisitor(visitorId, events)) {
+                limitedVisitors.add(visitorId);
+            }
+        });
+        if (!limitedVisitors.isEmpty()) {
+            List<AnalyticsTrackingRequest> allowed = new ArrayList<>(requests.size());
+            for (AnalyticsTrackingRequest request : requests) {
+                if (request == null || !limitedVisitors.contains(request.getVisitorId())) {
+                    allowed.add(request);
+                }
+            }
+            if (allowed.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+            }
+            requests = allowed;
+        }
+
+        String userAgent = httpRequest.getHeader(USER_AGENT_HEADER);
+        UUID authenticatedUserId = getAuthenticatedUserId();
+
+        analyticsService.trackEvents(username, requests, authenticatedUserId, userAgent);
+
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
+    /**
+     * Resolves the visitor ID with priority: header > request body.
+     * Header is preferred as it's more reliable and doesn't require request body parsing.
+     * Returns null if neither is usable - the service rejects such events.
+     */
+    private String resolveVisitorId(String visitorIdHeader, AnalyticsTrackingRequest request) {
+        if (visitorIdHeader != null && !visitorIdHeader.isBlank() && !visitorIdHeader.equals("anonymous")) {
+            return visitorIdHeader.trim();
+        }
+        if (request != null && request.getVisitorId() != null && 
+                !request.getVisitorId().isBlank() && !request.getVisitorId().equals("anonymous")) {
+            return request.getVisitorId().trim();
+        }
+        return null;
+    }
+
     /**
      * Gets the authenticated user's ID if available.
      * Returns null if unauthenticated.
@@ -102,8 +224,7 @@ public class PublicAnalyticsController {
             }
             
             String username = authentication.getName();
-            User user = userRepository.findByUsername(username).orElse(null);
-            return user != null ? user.getId() : null;
+            return userIdCache.findIdByUsername(username).orElse(null);
         } catch (Exception e) {
             // Fail silently - return null if unable to determine authenticated user
             return null;
@@ -0,0 +1,159 @@
+package com.developer.analytics.aggregation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for scheduled analytics aggregation.
+ * Bound from the {@code app.analytics.aggregation} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.aggregation")
+public class AnalyticsAggregationProperties {
+
+    public enum Mode {
+        /**
+         * Aggregate each portfolio separately in Java.
+         */
+        PER_USER,
+        /**
+         * Aggregate every portfolio in one grouped SQL statement and upsert the summaries.
+         */
+        SET_BASED,
+        /**
+         * Fold only events past each portfolio's high-water mark into running totals.
+         */
+        INCREMENTAL
+    }
+
+    private Mode mode = Mode.PER_USER;
+
+    /**
+     * Aggregate only portfolios marked dirty by ingestion instead of every portfolio
+     * with events. Not used in SET_BASED mode, which covers all portfolios in one statement.
+     */
+    private boolean dirtyTracking = true;
+
+    /**
+     * Minimum age of a portfolio's last dirty mark before it is aggregated.
+     */
+    private long dirtySettleSeconds = 30;
+
+    /**
+     * Maximum age of a portfolio's first dirty mark before it is aggregated even though
+     * it keeps receiving events.
+     */
+    private long dirtyMaxDelaySeconds = 300;
+
+    /**
+     * JDBC fetch size for the cursor that streams a portfolio's raw events in PER_USER mode.
+     */
+    private int streamFetchSize = 1000;
+
+    /**
+     * Aggregate portfolios concurrently on virtual threads (PER_USER and INCREMENTAL modes).
+     */
+    private boolean parallel = false;
+
+    /**
+     * Connections of the analytics pool left for ingestion and trend queries while a parallel
+     * run is active.
+     */
+    private int parallelReservedConnections = 2;
+
+    /**
+     * Upper bound on concurrent aggregation tasks, regardless of pool size.
+     */
+    private int parallelMaxConcurrency = 8;
+
+    /**
+     * Events younger than this are left for the next incremental run, so rows still
+     * waiting in the async write queue are not skipped by the high-water mark.
+     */
+    private long incrementalLagSeconds = 120;
+
+    /**
+     * Maximum events read per query during an incremental run.
+     */
+    private int incrementalPageSize = 5000;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public boolean isDirtyTracking() {
+        return dirtyTracking;
+    }
+
+    public void setDirtyTracking(boolean dirtyTracking) {
+        this.dirtyTracking = dirtyTracking;
+    }
+
+    public long getDirtySettleSeconds() {
+        return dirtySettleSeconds;
+    }
+
+    public void setDirtySettleSeconds(long dirtySettleSeconds) {
+        this.dirtySettleSeconds = dirtySettleSeconds;
+    }
+
+    public long getDirtyMaxDelaySeconds() {
+        return dirtyMaxDelaySeconds;
+    }
+
+    public void setDirtyMaxDelaySeconds(long dirtyMaxDelaySeconds) {
+        this.dirtyMaxDelaySeconds = dirtyMaxDelaySeconds;
+    }
+
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getParallelReservedConnections() {
+        return parallelReservedConnections;
+    }
+
+    public void setParallelReservedConnections(int parallelReservedConnections) {
+        this.parallelReservedConnections = parallelReservedConnections;
+    }
+
+    public int getParallelMaxConcurrency() {
+        return parallelMaxConcurrency;
+    }
+
+    public void setParallelMaxConcurrency(int parallelMaxConcurrency) {
+        this.parallelMaxConcurrency = parallelMaxConcurrency;
+    }
+
+    public long getIncrementalLagSeconds() {
+        return incrementalLagSeconds;
+    }
+
+    public void setIncrementalLagSeconds(long incrementalLagSeconds) {
+        this.incrementalLagSeconds = incrementalLagSeconds;
+    }
+
+    public int getIncrementalPageSize() {
+        return incrementalPageSize;
+    }
+
+    public void setIncrementalPageSize(int incrementalPageSize) {
+        this.incrementalPageSize = incrementalPageSize;
+    }
+}
@@ -0,0 +1,136 @@
+package com.developer.analytics.aggregation;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Tracks portfolios that received events since they were last aggregated.
+ *
+ * Marking is a lock-free add to an in-memory set, done once an event's row was inserted; the
+ * set is flushed every few seconds (and on shutdown) into {@code portfolio_analytics_dirty} so it
+ * survives restarts. The scheduler picks up rows whose last mark is older than a settle delay,
+ * which lets a burst of writes to one portfolio share a single aggregation, and clears each row
+ * only after its portfolio was aggregated, so a crash or failure mid-run loses nothing.
+ *
+ * A portfolio that receives events in every settle window never goes quiet, so a row is also
+ * picked up once its first mark is older than a maximum delay. Marks of portfolio owners that
+ * no longer exist are skipped, so one deleted user cannot fail every flush.
+ */
+@Component
+public class DirtyPortfolioTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirtyPortfolioTracker.class);
+
+    private static final String MARK_SQL = """
+            INSERT INTO portfolio_analytics_dirty (portfolio_user_id, marked_at, first_marked_at)
+            SELECT id, NOW(), NOW() FROM users WHERE id = ?
+            ON CONFLICT (portfolio_user_id) DO UPDATE SET marked_at = EXCLUDED.marked_at
+            """;
+
+    private static final String SELECT_SETTLED_SQL = """
+            SELECT portfolio_user_id, LEAST(marked_at, NOW() - make_interval(secs => ?))
+            FROM portfolio_analytics_dirty
+            WHERE marked_at < NOW() - make_interval(secs => ?)
+                OR first_marked_at < NOW() - make_interval(secs => ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    public DirtyPortfolioTracker(@Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Marks a portfolio as needing aggregation. Never touches the database.
+     */
+    public void markDirty(UUID portfolioUserId) {
+        pending.add(portfolioUserId);
+    }
+
+    /**
+     * Persists marks collected since the last flush. Marks that cannot be written stay
+     * in memory and are retried on the next flush.
+     */
+    @Scheduled(fixedDelay = 5_000, initialDelay = 5_000)
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<UUID> drained = new ArrayList<>(pending.size());
+        for (Iterator<UUID> it = pending.iterator(); it.hasNext();) {
+            drained.add(it.next());
+            it.remove();
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(MARK_SQL, drained.stream().map(id -> new Object[] { id }).toList());
+        } catch (Exception e) {
+            pending.addAll(drained);
+            logger.warn("Failed to persist {} dirty portfolio mark(s), will retry: {}", drained.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Flushes pending marks, then returns every portfolio whose last mark is older than
+     * the settle delay, or whose first mark is older than the maximum delay. Other portfolios
+     * are left for the next run.
+     *
+     * @param settleSeconds How long a mark must be quiet before it is picked up
+     * @param maxDelaySeconds How long a portfolio may wait for aggregation while it keeps receiving events
+     * @return The marks to aggregate
+     */
+    public List<DirtyMark> findSettled(long settleSeconds, long maxDelaySeconds) {
+        flush();
+        return jdbcTemplate.query(SELECT_SETTLED_SQL,
+                (rs, rowNum) -> new DirtyMark(rs.getObject(1, UUID.class), rs.getTimestamp(2)),
+                settleSeconds, settleSeconds, maxDelaySeconds);
+    }
+
+    /**
+     * Clears a mark after its portfolio was aggregated. A mark refreshed in the meantime, or
+     * not yet settled when it was picked up, is kept and its maximum delay starts over.
+     */
+    public void clear(DirtyMark mark) {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM portfolio_analytics_dirty WHERE portfolio_user_id = ? AND marked_at <= ?",
+                mark.portfolioUserId(), mark.settledAt());
+        if (deleted == 0) {
+            jdbcTemplate.update(
+                    "UPDATE portfolio_analytics_dirty SET first_marked_at = NOW() WHERE portfolio_user_id = ?",
+                    mark.portfolioUserId());
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @param settledAt The last mark, capped at the settle boundary; events marked after it may not be aggregated yet
+     */
+    public record DirtyMark(UUID portfolioUserId, Timestamp settledAt) {
+    }
+}
@@ -0,0 +1,271 @@
+package com.developer.analytics.aggregation;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.developer.analytics.retention.AnalyticsRetentionService;
+import com.developer.analytics.retention.RetentionWatermark;
+import com.developer.analytics.retention.RollupTotals;
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Incrementally maintains {@code portfolio_analytics_summary} from events past a
+ * per-portfolio high-water mark on (created_at, id).
+ *
+ * Each run:
+ * 1. Locks the portfolio's aggregation state (seeding it from the rollup history on first use)
+ * 2. Reads only events past the high-water mark and older than the settle lag
+ * 3. Merges per-visitor VIEW/ENGAGED flags into {@code portfolio_analytics_visitor_state}
+ *    and applies the resulting deltas to the running totals
+ * 4. Advances the high-water mark and writes the summary
+ *
+ * Unique views, engaged views and derived bounces are exact because they are computed from
+ * the visitor flags, not from event counts. The settle lag covers events that are still in
+ * the async write queue; events that arrive later than that with an older timestamp (e.g. a
+ * long spool replay) are only picked up by a full re-aggregation.
+ */
+@Service
+public class IncrementalAnalyticsAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalAnalyticsAggregator.class);
+
+    private static final UUID MIN_EVENT_ID = new UUID(0L, 0L);
+
+    private static final String SELECT_NEW_EVENTS_SQL = """
+            SELECT id, visitor_key, event_type, duration_seconds, created_at
+            FROM portfolio_analytics_event
+            WHERE portfolio_user_id = ?
+                AND (created_at, id) > (?, ?)
+                AND created_at < ?
+                AND event_type IN ('VIEW', 'ENGAGED')
+            ORDER BY created_at, id
+            LIMIT ?
+            """;
+
+    private static final String UPSERT_VISITOR_SQL = """
+            INSERT INTO portfolio_analytics_visitor_state AS v (portfolio_user_id, visitor_key, viewed, engaged)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (portfolio_user_id, visitor_key) DO UPDATE SET
+                viewed = v.viewed OR EXCLUDED.viewed,
+                engaged = v.engaged OR EXCLUDED.engaged
+            """;
+
+    private static final String UPSERT_SUMMARY_SQL = """
+            INSERT INTO portfolio_analytics_summary AS s
+                (portfolio_user_id, total_views, engaged_views, bounce_count, avg_duration_seconds, last_calculated_at)
+            VALUES (?, ?, ?, ?, ?, NOW())
+            ON CONFLICT (portfolio_user_id) DO UPDATE SET
+                total_views = EXCLUDED.total_views,
+                engaged_views = EXCLUDED.engaged_views,
+                bounce_count = EXCLUDED.bounce_count,
+                avg_duration_seconds = EXCLUDED.avg_duration_seconds,
+                last_calculated_at = EXCLUDED.last_calculated_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AnalyticsRetentionService retentionService;
+    private final AnalyticsAggregationProperties properties;
+
+    public IncrementalAnalyticsAggregator(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            AnalyticsRetentionService retentionService,
+            AnalyticsAggregationProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionService = retentionService;
+        this.properties = properties;
+    }
+
+    /**
+     * Folds events that arrived since the last run into the portfolio's summary.
+     *
+     * @param portfolioUserId The UUID of the portfolio owner
+     * @param lease The aggregation lease, fenced before anything is written
+     * @return The number of events consumed
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public int aggregateForUser(UUID portfolioUserId, SchedulerLeaseService.Lease lease) {
+        lease.checkFence(jdbcTemplate);
+        RetentionWatermark retention = retentionService.getWatermark();
+        State state = lockState(portfolioUserId, retention);
+        Timestamp cutoff = Timestamp.from(Instant.now().minusSeconds(properties.getIncrementalLagSeconds()));
+
+        int consumed = 0;
+        int pageSize = Math.max(1, properties.getIncrementalPageSize());
+        List<NewEvent> page;
+        do {
+            page = jdbcTemplate.query(SELECT_NEW_EVENTS_SQL,
+                    (rs, rowNum) -> new NewEvent(
+                            rs.getObject(1, UUID.class),
+                            rs.getLong(2),
+                            "VIEW".equals(rs.getString(3)),
+                            (Integer) rs.getObject(4),
+                            rs.getTimestamp(5)),
+                    portfolioUserId, state.lastCreatedAt, state.lastEventId, cutoff, pageSize);
+            if (!page.isEmpty()) {
+                merge(portfolioUserId, state, page);
+                consumed += page.size();
+            }
+        } while (page.size() == pageSize);
+
+        saveState(portfolioUserId, state);
+        int avgDurationSeconds = state.durationCount > 0 ? (int) (state.durationSum / state.durationCount) : 0;
+        jdbcTemplate.update(UPSERT_SUMMARY_SQL, portfolioUserId,
+                (int) state.totalViews, (int) state.engagedViews, (int) state.bounceCount, avgDurationSeconds);
+
+        if (consumed > 0) {
+            logger.debug("Incrementally aggregated {} event(s) for user {}: views={}, engaged={}, bounce={}",
+                    consumed, portfolioUserId, state.totalViews, state.engagedViews, state.bounceCount);
+        }
+        return consumed;
+    }
+
+    private void merge(UUID portfolioUserId, State state, List<NewEvent> events) {
+        // Collapse the page to one flag pair per visitor
+        Map<Long, boolean[]> incoming = new HashMap<>();
+        for (NewEvent event : events) {
+            boolean[] flags = incoming.computeIfAbsent(event.visitorKey(), k -> new boolean[2]);
+            if (event.view()) {
+                flags[0] = true;
+                if (event.durationSeconds() != null) {
+                    state.durationSum += event.durationSeconds();
+                    state.durationCount++;
+                }
+            } else {
+                flags[1] = true;
+            }
+        }
+
+        Map<Long, boolean[]> existing = loadVisitorFlags(portfolioUserId, incoming.keySet().toArray(Long[]::new));
+
+        List<Object[]> upserts = new ArrayList<>(incoming.size());
+        for (Map.Entry<Long, boolean[]> entry : incoming.entrySet()) {
+            boolean[] before = existing.getOrDefault(entry.getKey(), new boolean[2]);
+            boolean viewed = before[0] || entry.getValue()[0];
+            boolean engaged = before[1] || entry.getValue()[1];
+
+            if (viewed && !before[0]) {
+                state.totalViews++;
+            }
+            if (engaged && !before[1]) {
+                state.engagedViews++;
+            }
+            // Bounce: VIEW without ENGAGED, before and after this page
+            state.bounceCount += (viewed && !engaged ? 1 : 0) - (before[0] && !before[1] ? 1 : 0);
+
+            if (viewed != before[0] || engaged != before[1]) {
+                upserts.add(new Object[] { portfolioUserId, entry.getKey(), viewed, engaged });
+            }
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_VISITOR_SQL, upserts);
+        }
+
+        NewEvent last = events.get(events.size() - 1);
+        state.lastCreatedAt = last.createdAt();
+        state.lastEventId = last.id();
+    }
+
+    private Map<Long, boolean[]> loadVisitorFlags(UUID portfolioUserId, Long[] visitorKeys) {
+        Map<Long, boolean[]> flags = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT visitor_key, viewed, engaged FROM portfolio_analytics_visitor_state WHERE portfolio_user_id = ? AND visitor_key = ANY(?)",
+                ps -> {
+                    ps.setObject(1, portfolioUserId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", visitorKeys));
+                },
+                rs -> {
+                    flags.put(rs.getLong(1), new boolean[] { rs.getBoolean(2), rs.getBoolean(3) });
+                });
+        return flags;
+    }
+
+    /**
+     * Locks the portfolio's state row, seeding it when missing or when its high-water mark
+     * has fallen behind the retention watermark (the events it still needed were purged).
+     */
+    private State lockState(UUID portfolioUserId, RetentionWatermark retention) {
+        Timestamp rawSince = Timestamp.from(retention.rawSince());
+        RollupTotals history = retentionService.sumRollupTotalsBefore(portfolioUserId, retention.rollupBefore());
+
+        jdbcTemplate.update("""
+                INSERT INTO portfolio_analytics_aggregation_state
+                    (portfolio_user_id, last_created_at, last_event_id, total_views, engaged_views,
+                     bounce_count, duration_sum, duration_count)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (portfolio_user_id) DO NOTHING
+                """,
+                portfolioUserId, rawSince, MIN_EVENT_ID,
+                history.uniqueVisitors(), history.engagedVisitors(), history.bounceCount(),
+                history.durationSum(), history.durationCount());
+
+        State state = jdbcTemplate.queryForObject("""
+                SELECT last_created_at, last_event_id, total_views, engaged_views,
+                       bounce_count, duration_sum, duration_count
+                FROM portfolio_analytics_aggregation_state
+                WHERE portfolio_user_id = ?
+                FOR UPDATE
+                """,
+                (rs, rowNum) -> {
+                    State s = new State();
+                    s.lastCreatedAt = rs.getTimestamp(1);
+                    s.lastEventId = rs.getObject(2, UUID.class);
+                    s.totalViews = rs.getLong(3);
+                    s.engagedViews = rs.getLong(4);
+                    s.bounceCount = rs.getLong(5);
+                    s.durationSum = rs.getLong(6);
+                    s.durationCount = rs.getLong(7);
+                    return s;
+                },
+                portfolioUserId);
+
+        if (state.lastCreatedAt.before(rawSince)) {
+            logger.info("Incremental state for user {} is behind the retention watermark, reseeding", portfolioUserId);
+            jdbcTemplate.update("DELETE FROM portfolio_analytics_visitor_state WHERE portfolio_user_id = ?", portfolioUserId);
+            state.lastCreatedAt = rawSince;
+            state.lastEventId = MIN_EVENT_ID;
+            state.totalViews = history.uniqueVisitors();
+            state.engagedViews = history.engagedVisitors();
+            state.bounceCount = history.bounceCount();
+            state.durationSum = history.durationSum();
+            state.durationCount = history.durationCount();
+        }
+        return state;
+    }
+
+    private void saveState(UUID portfolioUserId, State state) {
+        jdbcTemplate.update("""
+                UPDATE portfolio_analytics_aggregation_state SET
+                    last_created_at = ?, last_event_id = ?, total_views = ?, engaged_views = ?,
+                    bounce_count = ?, duration_sum = ?, duration_count = ?, updated_at = NOW()
+                WHERE portfolio_user_id = ?
+                """,
+                state.lastCreatedAt, state.lastEventId, state.totalViews, state.engagedViews,
+                state.bounceCount, state.durationSum, state.durationCount, portfolioUserId);
+    }
+
+    private record NewEvent(UUID id, long visitorKey, boolean view, Integer durationSeconds, Timestamp createdAt) {
+    }
+
+    private static final class State {
+        Timestamp lastCreatedAt;
+        UUID lastEventId;
+        long totalViews;
+        long engagedViews;
+        long bounceCount;
+        long durationSum;
+        long durationCount;
+    }
+}
@@ -0,0 +1,161 @@
+package com.developer.analytics.aggregation;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Runs per-portfolio aggregation work on virtual threads.
+ *
+ * Each task holds a database connection for its whole transaction, so concurrency is capped
+ * by a semaphore sized from the analytics Hikari pool: {@code maximum-pool-size} minus the
+ * connections reserved for ingestion and trend queries, and never more than the configured
+ * maximum. The scheduling thread blocks on the semaphore, so at most that many tasks are
+ * ever in flight.
+ */
+@Component
+public class ParallelAggregationExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelAggregationExecutor.class);
+
+    // Fallback when the pool size cannot be read (Hikari's own default)
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final AnalyticsAggregationProperties properties;
+    private final int permits;
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong succeededCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile long lastRunMillis;
+    private volatile int lastRunSucceeded;
+    private volatile int lastRunFailed;
+    private volatile double lastRunThroughputPerSecond;
+
+    public ParallelAggregationExecutor(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) DataSource dataSource,
+            AnalyticsAggregationProperties properties) {
+        this.properties = properties;
+        int poolSize = resolvePoolSize(dataSource);
+        this.permits = Math.max(1, Math.min(properties.getParallelMaxConcurrency(),
+                poolSize - properties.getParallelReservedConnections()));
+        logger.info("Parallel analytics aggregation limited to {} concurrent task(s) (pool size {})", permits, poolSize);
+    }
+
+    /**
+     * Runs the task for every item and waits for all of them to finish.
+     *
+     * @param items The work items, usually portfolio IDs
+     * @param task Returns true on success; thrown exceptions count as failures
+     * @return The number of successful tasks
+     */
+    public <T> int runAll(List<T> items, Predicate<T> task) throws InterruptedException {
+        Semaphore semaphore = new Semaphore(permits);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (T item : items) {
+                semaphore.acquire();
+                executor.execute(() -> {
+                    try {
+                        if (task.test(item)) {
+                            succeeded.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        logger.warn("Parallel aggregation task failed for {}: {}", item, e.getMessage());
+                    } finally {
+                        semaphore.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            // Wait for in-flight tasks even when interrupted, so no transaction outlives the run
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("Still waiting for {} parallel aggregation task(s)", permits - semaphore.availablePermits());
+            }
+        }
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        runCount.incrementAndGet();
+        succeededCount.addAndGet(succeeded.get());
+        failedCount.addAndGet(failed.get());
+        lastRunMillis = elapsedMillis;
+        lastRunSucceeded = succeeded.get();
+        lastRunFailed = failed.get();
+        lastRunThroughputPerSecond = items.size() * 1000.0 / elapsedMillis;
+
+        logger.info("Parallel aggregation run: {} succeeded, {} failed in {} ms ({} portfolio(s)/s)",
+                lastRunSucceeded, lastRunFailed, lastRunMillis, String.format("%.1f", lastRunThroughputPerSecond));
+        return succeeded.get();
+    }
+
+    private static int resolvePoolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            // Fall through to the default
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+
+    public boolean isEnabled() {
+        return properties.isParallel();
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    public long getSucceededCount() {
+        return succeededCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    public int getLastRunSucceeded() {
+        return lastRunSucceeded;
+    }
+
+    public int getLastRunFailed() {
+        return lastRunFailed;
+    }
+
+    public double getLastRunThroughputPerSecond() {
+        return lastRunThroughputPerSecond;
+    }
+}
@@ -1,18 +1,26 @@
 package com.developer.analytics.aggregation;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.developer.analytics.AnalyticsEventType;
-import com.developer.analytics.PortfolioAnalyticsEvent;
-import com.developer.analytics.PortfolioAnalyticsEventRepository;
-import com.developer.analytics.summary.PortfolioAnalyticsSummary;
-import com.developer.analytics.summary.PortfolioAnalyticsSummaryRepository;
+import com.developer.analytics.retention.AnalyticsRetentionService;
+import com.developer.analytics.retention.RetentionWatermark;
+import com.developer.analytics.retention.RollupTotals;
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.developer.service.SchedulerLeaseService;
 
 /**
  * Service responsible for aggregating raw analytics events into summary metrics.
@@ -22,6 +30,10 @@ import com.developer.analytics.summary.PortfolioAnalyticsSummaryRepository;
  * - ENGAGED events count as engaged views
  * - BOUNCE is DERIVED server-side: VIEW exists but NO ENGAGED event for that visitor
  * - Average duration calculated from VIEW events with duration
+ * - History older than the retention watermark comes from the daily rollup and is added
+ *   to the metrics computed from recent raw events (visitors are distinct per rollup day)
+ * - Raw events are streamed as a narrow projection ordered by visitor, so memory use does
+ *   not grow with the number of events a portfolio has
  */
 @Service
 public class PortfolioAnalyticsAggregationService {
@@ -31,14 +43,136 @@ public class PortfolioAnalyticsAggregationService {
     // Engagement threshold: 30 seconds
     private static final int ENGAGEMENT_THRESHOLD_SECONDS = 30;
 
-    private final PortfolioAnalyticsEventRepository eventRepository;
-    private final PortfolioAnalyticsSummaryRepository summaryRepository;
+    /**
+     * Narrow projection of one portfolio's raw events since the watermark, ordered by visitor
+     * so {@link VisitorStreamTotals} only holds the current visitor's flags.
+     */
+    private static final String STREAM_EVENTS_SQL = """
+            SELECT visitor_key, event_type, duration_seconds
+            FROM portfolio_analytics_event
+            WHERE portfolio_user_id = ?
+                AND created_at >= ?
+                AND event_type IN ('VIEW', 'ENGAGED')
+            ORDER BY visitor_key
+            """;
+
+    /**
+     * Set-based equivalent of {@link #aggregateForUser} for every portfolio at once.
+     * With only VIEW and ENGAGED considered, visitors with a VIEW but no ENGAGED equal
+     * (all distinct visitors) - (distinct ENGAGED visitors), so bounce needs no self-join.
+     */
+    private static final String AGGREGATE_ALL_SQL = """
+            WITH watermark AS (
+                SELECT
+                    COALESCE(compacted_before, '-infinity'::TIMESTAMPTZ) AS raw_since,
+                    COALESCE(compacted_before_day, '-infinity'::DATE) AS rollup_before
+                FROM portfolio_analytics_retention_state
+                WHERE id = 1
+            ),
+            raw AS (
+                SELECT
+                    e.portfolio_user_id,
+                    COUNT(DISTINCT e.visitor_key) FILTER (WHERE e.event_type = 'VIEW') AS views,
+                    COUNT(DISTINCT e.visitor_key) FILTER (WHERE e.event_type = 'ENGAGED') AS engaged,
+                    COUNT(DISTINCT e.visitor_key) AS visitors,
+                    COALESCE(SUM(e.duration_seconds) FILTER (WHERE e.event_type = 'VIEW'), 0) AS duration_sum,
+                    COUNT(e.duration_seconds) FILTER (WHERE e.event_type = 'VIEW') AS duration_count
+                FROM portfolio_analytics_event e, watermark w
+                WHERE e.created_at >= w.raw_since
+                    AND e.event_type IN ('VIEW', 'ENGAGED')
+                GROUP BY e.portfolio_user_id
+            ),
+            history AS (
+                SELECT
+                    r.portfolio_user_id,
+                    SUM(r.unique_visitors) AS views,
+                    SUM(r.engaged_visitors) AS engaged,
+                    SUM(r.bounce_count) AS bounces,
+                    SUM(r.duration_sum) AS duration_sum,
+                    SUM(r.duration_count) AS duration_count
+                FROM portfolio_analytics_daily_rollup r, watermark w
+                WHERE r.day < w.rollup_before
+                GROUP BY r.portfolio_user_id
+            ),
+            combined AS (
+                SELECT
+                    COALESCE(raw.portfolio_user_id, history.portfolio_user_id) AS portfolio_user_id,
+                    COALESCE(raw.views, 0) + COALESCE(history.views, 0) AS views,
+                    COALESCE(raw.engaged, 0) + COALESCE(history.engaged, 0) AS engaged,
+                    COALESCE(raw.visitors - raw.engaged, 0) + COALESCE(history.bounces, 0) AS bounces,
+                    COALESCE(raw.duration_sum, 0) + COALESCE(history.duration_sum, 0) AS duration_sum,
+                    COALESCE(raw.duration_count, 0) + COALESCE(history.duration_count, 0) AS duration_count
+                FROM raw
+                FULL OUTER JOIN history ON history.portfolio_user_id = raw.portfolio_user_id
+            )
+            INSERT INTO portfolio_analytics_summary AS s
+                (portfolio_user_id, total_views, engaged_views, bounce_count, avg_duration_seconds, last_calculated_at)
+            SELECT
+                portfolio_user_id,
+                CAST(views AS INTEGER),
+                CAST(engaged AS INTEGER),
+                CAST(bounces AS INTEGER),
+                CAST(CASE WHEN duration_count > 0 THEN TRUNC(duration_sum / duration_count) ELSE 0 END AS INTEGER),
+                NOW()
+            FROM combined
+            ON CONFLICT (portfolio_user_id) DO UPDATE SET
+                total_views = EXCLUDED.total_views,
+                engaged_views = EXCLUDED.engaged_views,
+                bounce_count = EXCLUDED.bounce_count,
+                avg_duration_seconds = EXCLUDED.avg_duration_seconds,
+                last_calculated_at = EXCLUDED.last_calculated_at
+            """;
+
+    private static final String PORTFOLIO_USER_IDS_SQL =
+            "SELECT DISTINCT portfolio_user_id FROM portfolio_analytics_event";
+
+    private static final String UPSERT_SUMMARY_SQL = """
+            INSERT INTO portfolio_analytics_summary AS s
+                (portfolio_user_id, total_views, engaged_views, bounce_count, avg_duration_seconds, last_calculated_at)
+            VALUES (?, ?, ?, ?, ?, NOW())
+            ON CONFLICT (portfolio_user_id) DO UPDATE SET
+                total_views = EXCLUDED.total_views,
+                engaged_views = EXCLUDED.engaged_views,
+                bounce_count = EXCLUDED.bounce_count,
+                avg_duration_seconds = EXCLUDED.avg_duration_seconds,
+                last_calculated_at = EXCLUDED.last_calculated_at
+            """;
+
+    private final AnalyticsRetentionService retentionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final AnalyticsAggregationProperties properties;
 
     public PortfolioAnalyticsAggregationService(
-            PortfolioAnalyticsEventRepository eventRepository,
-            PortfolioAnalyticsSummaryRepository summaryRepository) {
-        this.eventRepository = eventRepository;
-        this.summaryRepository = summaryRepository;
+            AnalyticsRetentionService retentionService,
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            AnalyticsAggregationProperties properties) {
+        this.retentionService = retentionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * @return Every portfolio owner with raw analytics events
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER, readOnly = true)
+    public List<UUID> findPortfolioUserIds() {
+        return jdbcTemplate.queryForList(PORTFOLIO_USER_IDS_SQL, UUID.class);
+    }
+
+    /**
+     * Aggregates every portfolio with analytics data in a single grouped statement and
+     * upserts the results into the summary table. Same metrics as {@link #aggregateForUser},
+     * but one database round trip and no entity hydration.
+     *
+     * @param lease The aggregation lease, fenced before anything is written
+     * @return The number of summaries written
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public int aggregateAll(SchedulerLeaseService.Lease lease) {
+        lease.checkFence(jdbcTemplate);
+        int updated = jdbcTemplate.update(AGGREGATE_ALL_SQL);
+        logger.debug("Set-based aggregation upserted {} summary row(s)", updated);
+        return updated;
     }
 
     /**
@@ -47,72 +181,126 @@ public class PortfolioAnalyticsAggregationService {
      * Bounce is derived server-side: a VIEW event without a corresponding ENGAGED event
      * for the same visitor is considered a bounce.
      * 
+     * Failures propagate so the transaction rolls back and the caller can keep the portfolio
+     * marked for the next run.
+     * 
      * @param portfolioUserId The UUID of the portfolio owner
+     * @param lease The aggregation lease, fenced before anything is written
      */
-    @Transactional
-    public void aggregateForUser(UUID portfolioUserId) {
-        try {
-            // Fetch all events for this user
-            List<PortfolioAnalyticsEvent> events = eventRepository.findByPortfolioUserId(portfolioUserId);
-
-            if (events.isEmpty()) {
-                // No events yet - create empty summary or reset existing
-                createOrUpdateSummary(portfolioUserId, 0, 0, 0, 0);
-                logger.debug("No events found for user {}, created empty summary", portfolioUserId);
-                return;
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public void aggregateForUser(UUID portfolioUserId, SchedulerLeaseService.Lease lease) {
+        lease.checkFence(jdbcTemplate);
+
+        // Compacted history (days before the watermark) comes from the rollup
+        RetentionWatermark watermark = retentionService.getWatermark();
+        RollupTotals history = retentionService.sumRollupTotalsBefore(portfolioUserId, watermark.rollupBefore());
+
+        // Stream the raw events that have not been compacted, one visitor at a time
+        VisitorStreamTotals totals = streamRawTotals(portfolioUserId, watermark.rawSince());
+
+        if (totals.events == 0 && history.uniqueVisitors() == 0) {
+            // No events yet - create empty summary or reset existing
+            createOrUpdateSummary(portfolioUserId, 0, 0, 0, 0);
+            logger.debug("No events found for user {}, created empty summary", portfolioUserId);
+            return;
+        }
+
+        // Calculate metrics
+        int totalViews = (int) (totals.views + history.uniqueVisitors());
+        int engagedViews = (int) (totals.engaged + history.engagedVisitors());
+        int bounceCount = (int) (totals.bounces + history.bounceCount());
+        long totalDuration = totals.durationSum + history.durationSum();
+        long durationCount = totals.durationCount + history.durationCount();
+
+        // Calculate average duration from VIEW events
+        int avgDurationSeconds = durationCount > 0 ? (int) (totalDuration / durationCount) : 0;
+
+        // Persist or update summary
+        createOrUpdateSummary(portfolioUserId, totalViews, engagedViews, bounceCount, avgDurationSeconds);
+
+        logger.debug("Aggregated analytics for user {}: views={}, engaged={}, bounce={} (derived), avgDuration={}s",
+                portfolioUserId, totalViews, engagedViews, bounceCount, avgDurationSeconds);
+    }
+
+    /**
+     * Streams (visitor_key, event_type, duration_seconds) for a portfolio through a forward-only
+     * cursor, ordered by visitor so only the current visitor's flags are held in memory.
+     * The driver only uses a server-side cursor inside a transaction, which callers provide.
+     */
+    private VisitorStreamTotals streamRawTotals(UUID portfolioUserId, Instant since) {
+        VisitorStreamTotals totals = new VisitorStreamTotals();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(STREAM_EVENTS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Math.max(1, properties.getStreamFetchSize()));
+            ps.setObject(1, portfolioUserId);
+            ps.setTimestamp(2, Timestamp.from(since));
+            return ps;
+        }, totals);
+        totals.finish();
+        return totals;
+    }
+
+    /**
+     * Running totals over events grouped by visitor.
+     * A bounce is a visitor with a VIEW but no ENGAGED event.
+     */
+    private static final class VisitorStreamTotals implements RowCallbackHandler {
+        private boolean inVisitor;
+        private long currentVisitor;
+        private boolean currentViewed;
+        private boolean currentEngaged;
+
+        long events;
+        long views;
+        long engaged;
+        long bounces;
+        long durationSum;
+        long durationCount;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long visitorKey = rs.getLong(1);
+            if (!inVisitor || visitorKey != currentVisitor) {
+                finish();
+                inVisitor = true;
+                currentVisitor = visitorKey;
             }
+            events++;
 
-            // Group events by visitor to properly calculate bounce
-            // A bounce is: VIEW exists but NO ENGAGED event for that visitor
-            
-            // Track unique visitors with VIEW events
-            java.util.Set<String> visitorsWithView = new java.util.HashSet<>();
-            // Track unique visitors with ENGAGED events
-            java.util.Set<String> visitorsWithEngaged = new java.util.HashSet<>();
-            // Track duration from VIEW events only (for average calculation)
-            int totalDuration = 0;
-            int durationCount = 0;
-
-            for (PortfolioAnalyticsEvent event : events) {
-                // Ignore old BOUNCE events (they should not exist going forward)
-                if (event.getEventType() == AnalyticsEventType.VIEW) {
-                    visitorsWithView.add(event.getVisitorId());
-                    
-                    // Include duration from VIEW events for average calculation
-                    if (event.getDurationSeconds() != null) {
-                        totalDuration += event.getDurationSeconds();
-                        durationCount++;
-                    }
-                } else if (event.getEventType() == AnalyticsEventType.ENGAGED) {
-                    visitorsWithEngaged.add(event.getVisitorId());
+            // BOUNCE events are excluded by the query - bounce is derived, not stored
+            if ("VIEW".equals(rs.getString(2))) {
+                currentViewed = true;
+                // Include duration from VIEW events for average calculation
+                int duration = rs.getInt(3);
+                if (!rs.wasNull()) {
+                    durationSum += duration;
+                    durationCount++;
                 }
-                // BOUNCE events are ignored - bounce is derived, not stored
+            } else {
+                currentEngaged = true;
             }
+        }
 
-            // Calculate metrics
-            int totalViews = visitorsWithView.size();
-            int engagedViews = visitorsWithEngaged.size();
-            
-            // Derive bounce: visitors with VIEW but NO ENGAGED
-            int bounceCount = 0;
-            for (String visitorId : visitorsWithView) {
-                if (!visitorsWithEngaged.contains(visitorId)) {
-                    bounceCount++;
+        /**
+         * Closes the current visitor group.
+         */
+        void finish() {
+            if (!inVisitor) {
+                return;
+            }
+            if (currentViewed) {
+                views++;
+                if (!currentEngaged) {
+                    bounces++;
                 }
             }
-
-            // Calculate average duration from VIEW events
-            int avgDurationSeconds = durationCount > 0 ? totalDuration / durationCount : 0;
-
-            // Persist or update summary
-            createOrUpdateSummary(portfolioUserId, totalViews, engagedViews, bounceCount, avgDurationSeconds);
-
-            logger.debug("Aggregated analytics for user {}: views={}, engaged={}, bounce={} (derived), avgDuration={}s",
-                    portfolioUserId, totalViews, engagedViews, bounceCount, avgDurationSeconds);
-
-        } catch (Exception e) {
-            logger.error("Failed to aggregate analytics for user {}: {}", portfolioUserId, e.getMessage(), e);
-            // Fail silently - don't throw to avoid breaking scheduled jobs
+            if (currentEngaged) {
+                engaged++;
+            }
+            inVisitor = false;
+            currentViewed = false;
+            currentEngaged = false;
         }
     }
 
@@ -121,16 +309,8 @@ public class PortfolioAnalyticsAggregationService {
      */
     private void createOrUpdateSummary(UUID portfolioUserId, int totalViews, int engagedViews, 
                                       int bounceCount, int avgDurationSeconds) {
-        PortfolioAnalyticsSummary summary = summaryRepository.findByPortfolioUserId(portfolioUserId)
-                .orElse(new PortfolioAnalyticsSummary());
-
-        summary.setPortfolioUserId(portfolioUserId);
-        summary.setTotalViews(totalViews);
-        summary.setEngagedViews(engagedViews);
-        summary.setBounceCount(bounceCount);
-        summary.setAvgDurationSeconds(avgDurationSeconds);
-
-        summaryRepository.save(summary);
+        jdbcTemplate.update(UPSERT_SUMMARY_SQL,
+                portfolioUserId, totalViews, engagedViews, bounceCount, avgDurationSeconds);
     }
 
     /**
@@ -1,36 +1,73 @@
 package com.developer.analytics.aggregation;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import com.developer.analytics.PortfolioAnalyticsEventRepository;
+import com.developer.exception.LeaseLostException;
+import com.developer.service.SchedulerLeaseService;
 
 @Component
 public class PortfolioAnalyticsScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(PortfolioAnalyticsScheduler.class);
 
-    private final PortfolioAnalyticsEventRepository eventRepository;
+    private static final String LEASE_NAME = "analytics-aggregation";
+
     private final PortfolioAnalyticsAggregationService aggregationService;
+    private final IncrementalAnalyticsAggregator incrementalAggregator;
+    private final DirtyPortfolioTracker dirtyPortfolioTracker;
+    private final ParallelAggregationExecutor parallelExecutor;
+    private final AnalyticsAggregationProperties properties;
+    private final SchedulerLeaseService leaseService;
 
     public PortfolioAnalyticsScheduler(
-            PortfolioAnalyticsEventRepository eventRepository,
-            PortfolioAnalyticsAggregationService aggregationService) {
-        this.eventRepository = eventRepository;
+            PortfolioAnalyticsAggregationService aggregationService,
+            IncrementalAnalyticsAggregator incrementalAggregator,
+            DirtyPortfolioTracker dirtyPortfolioTracker,
+            ParallelAggregationExecutor parallelExecutor,
+            AnalyticsAggregationProperties properties,
+            SchedulerLeaseService leaseService) {
         this.aggregationService = aggregationService;
+        this.incrementalAggregator = incrementalAggregator;
+        this.dirtyPortfolioTracker = dirtyPortfolioTracker;
+        this.parallelExecutor = parallelExecutor;
+        this.properties = properties;
+        this.leaseService = leaseService;
     }
 
     @Scheduled(cron = "0 */15 * * * ?")
     public void aggregateAnalytics() {
-        logger.info("Starting scheduled analytics aggregation");
+        // Only one replica aggregates per tick
+        Optional<SchedulerLeaseService.Lease> lease = leaseService.tryAcquire(LEASE_NAME);
+        if (lease.isEmpty()) {
+            logger.debug("Skipping analytics aggregation, another node is the leader");
+            return;
+        }
 
-        try {
-            List<UUID> portfolioUserIds = eventRepository.findDistinctPortfolioUserIds();
+        logger.info("Starting scheduled analytics aggregation (mode: {})", properties.getMode());
+
+        try (SchedulerLeaseService.Lease held = lease.get()) {
+            if (properties.getMode() == AnalyticsAggregationProperties.Mode.SET_BASED) {
+                int updated = aggregationService.aggregateAll(held);
+                logger.info("Completed set-based analytics aggregation: {} summary row(s) upserted", updated);
+                return;
+            }
+
+            boolean incremental = properties.getMode() == AnalyticsAggregationProperties.Mode.INCREMENTAL;
+
+            if (properties.isDirtyTracking()) {
+                aggregateDirty(incremental, held);
+                return;
+            }
+
+            List<UUID> portfolioUserIds = aggregationService.findPortfolioUserIds();
 
             if (portfolioUserIds.isEmpty()) {
                 logger.debug("No analytics events found, skipping aggregation");
@@ -39,20 +76,85 @@ public class PortfolioAnalyticsScheduler {
 
             logger.info("Aggregating analytics for {} portfolio(s)", portfolioUserIds.size());
 
-            int successCount = 0;
-            for (UUID userId : portfolioUserIds) {
-                try {
-                    aggregationService.aggregateForUser(userId);
-                    successCount++;
-                } catch (Exception e) {
-                    logger.warn("Failed to aggregate analytics for user {}: {}", userId, e.getMessage());
-                }
-            }
+            int successCount = runAll(portfolioUserIds, userId -> aggregate(userId, incremental, held));
 
             logger.info("Completed analytics aggregation: {}/{} successful", successCount, portfolioUserIds.size());
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Scheduled analytics aggregation interrupted");
         } catch (Exception e) {
             logger.error("Error during scheduled analytics aggregation: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * Aggregates only portfolios that received events since their last aggregation.
+     * A mark is cleared only after its portfolio was aggregated, so failures are retried next run.
+     */
+    private void aggregateDirty(boolean incremental, SchedulerLeaseService.Lease lease) throws InterruptedException {
+        // Incremental runs skip events younger than their lag, so the portfolio must stay dirty until then
+        long settleSeconds = incremental
+                ? Math.max(properties.getDirtySettleSeconds(), properties.getIncrementalLagSeconds())
+                : properties.getDirtySettleSeconds();
+        List<DirtyPortfolioTracker.DirtyMark> marks = dirtyPortfolioTracker.findSettled(
+                settleSeconds, Math.max(settleSeconds, properties.getDirtyMaxDelaySeconds()));
+
+        if (marks.isEmpty()) {
+            logger.debug("No dirty portfolios, skipping aggregation");
+            return;
+        }
+
+        logger.info("Aggregating analytics for {} dirty portfolio(s)", marks.size());
+
+        int successCount = runAll(marks, mark -> {
+            if (!aggregate(mark.portfolioUserId(), incremental, lease)) {
+                return false;
+            }
+            dirtyPortfolioTracker.clear(mark);
+            return true;
+        });
+
+        logger.info("Completed analytics aggregation: {}/{} dirty portfolio(s) successful", successCount, marks.size());
+    }
+
+    /**
+     * Runs the task for each item, in parallel when enabled, and returns the success count.
+     */
+    private <T> int runAll(List<T> items, Predicate<T> task) throws InterruptedException {
+        if (parallelExecutor.isEnabled()) {
+            return parallelExecutor.runAll(items, task);
+        }
+        int successCount = 0;
+        for (T item : items) {
+            if (task.test(item)) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
+    /**
+     * Aggregates one portfolio unless leadership was lost meanwhile (fencing), in which case
+     * the portfolio is left for the new leader.
+     */
+    private boolean aggregate(UUID userId, boolean incremental, SchedulerLeaseService.Lease lease) {
+        if (!lease.isHeld()) {
+            return false;
+        }
+        try {
+            if (incremental) {
+                incrementalAggregator.aggregateForUser(userId, lease);
+            } else {
+                aggregationService.aggregateForUser(userId, lease);
+            }
+            return true;
+        } catch (LeaseLostException e) {
+            logger.debug("Not aggregating analytics for user {}: {}", userId, e.getMessage());
+            return false;
+        } catch (Exception e) {
+            logger.warn("Failed to aggregate analytics for user {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
 }
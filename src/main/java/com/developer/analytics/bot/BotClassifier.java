@@ -0,0 +1,82 @@
+package com.developer.analytics.bot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Classifies User-Agent strings as bots or crawlers.
+ *
+ * Deny and allow patterns are compiled once into {@link MultiPatternMatcher} automata.
+ * Verdicts are memoized in a small direct-mapped cache, since traffic is dominated by
+ * a relatively small set of distinct User-Agent strings.
+ */
+@Component
+public class BotClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(BotClassifier.class);
+
+    private final MultiPatternMatcher denyMatcher;
+    private final MultiPatternMatcher allowMatcher;
+    private final Verdict[] verdictCache;
+    private final int cacheMask;
+
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong cacheMissCount = new AtomicLong();
+
+    public BotClassifier(BotDetectionProperties properties) {
+        this.denyMatcher = MultiPatternMatcher.compile(properties.getDenyPatterns());
+        this.allowMatcher = MultiPatternMatcher.compile(properties.getAllowPatterns());
+
+        int size = Integer.highestOneBit(Math.max(1, properties.getVerdictCacheSize() - 1)) << 1;
+        this.verdictCache = new Verdict[size];
+        this.cacheMask = size - 1;
+
+        logger.info("Bot classifier compiled {} deny / {} allow pattern(s), verdict cache size {}",
+                properties.getDenyPatterns().size(), properties.getAllowPatterns().size(), size);
+    }
+
+    /**
+     * Checks if the request is from a bot or crawler based on User-Agent.
+     * Missing User-Agents are treated as human to avoid false positives
+     * (some legitimate clients don't send one).
+     *
+     * @param userAgent The User-Agent header
+     * @return true if the request is from a bot/crawler and should be filtered out
+     */
+    public boolean isBot(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return false;
+        }
+
+        int slot = userAgent.hashCode() & cacheMask;
+        // Verdicts are immutable, so a racy read sees either a complete entry or a stale one
+        Verdict cached = verdictCache[slot];
+        if (cached != null && cached.userAgent().equals(userAgent)) {
+            cacheHitCount.incrementAndGet();
+            return cached.bot();
+        }
+
+        cacheMissCount.incrementAndGet();
+        boolean bot = classify(userAgent);
+        verdictCache[slot] = new Verdict(userAgent, bot);
+        return bot;
+    }
+
+    private boolean classify(String userAgent) {
+        return denyMatcher.matches(userAgent) && !allowMatcher.matches(userAgent);
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMissCount.get();
+    }
+
+    private record Verdict(String userAgent, boolean bot) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.developer.analytics.bot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for User-Agent based bot filtering.
+ * Bound from the {@code app.analytics.bot} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.bot")
+public class BotDetectionProperties {
+
+    /**
+     * Case-insensitive substrings that mark a User-Agent as a bot or crawler.
+     */
+    private List<String> denyPatterns = new ArrayList<>(List.of(
+            "bot", "crawler", "spider", "scraper",
+            "preview", "facebookexternalhit", "twitterbot",
+            "linkedinbot", "whatsapp", "telegram", "slackbot",
+            "googlebot", "bingbot", "yandexbot", "baiduspider",
+            "headless", "phantom", "selenium", "webdriver",
+            "curl", "wget", "python-requests", "java/"
+    ));
+
+    /**
+     * Case-insensitive substrings that mark a User-Agent as human even if a deny pattern matches.
+     */
+    private List<String> allowPatterns = new ArrayList<>();
+
+    /**
+     * Number of slots in the verdict cache. Rounded up to a power of two.
+     */
+    private int verdictCacheSize = 4096;
+
+    public List<String> getDenyPatterns() {
+        return denyPatterns;
+    }
+
+    public void setDenyPatterns(List<String> denyPatterns) {
+        this.denyPatterns = denyPatterns;
+    }
+
+    public List<String> getAllowPatterns() {
+        return allowPatterns;
+    }
+
+    public void setAllowPatterns(List<String> allowPatterns) {
+        this.allowPatterns = allowPatterns;
+    }
+
+    public int getVerdictCacheSize() {
+        return verdictCacheSize;
+    }
+
+    public void setVerdictCacheSize(int verdictCacheSize) {
+        this.verdictCacheSize = verdictCacheSize;
+    }
+}
@@ -0,0 +1,131 @@
+package com.developer.analytics.bot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton compiled to a dense transition table over case-folded ASCII.
+ *
+ * Answers "does the input contain any of the patterns?" in a single left-to-right pass
+ * with one array lookup per character, without allocating a lowercased copy of the input.
+ * Non-ASCII characters can never be part of a match and reset the automaton to its root.
+ * Instances are immutable and thread-safe.
+ */
+public final class MultiPatternMatcher {
+
+    private static final int ALPHABET_SIZE = 128;
+    private static final int ROOT = 0;
+
+    // transitions[state * ALPHABET_SIZE + c] -> next state
+    private final int[] transitions;
+    private final boolean[] accepting;
+    private final boolean empty;
+
+    private MultiPatternMatcher(int[] transitions, boolean[] accepting, boolean empty) {
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.empty = empty;
+    }
+
+    /**
+     * Compiles the given patterns. Null and blank patterns are skipped, so they never match;
+     * patterns containing non-ASCII characters are rejected with an {@link IllegalArgumentException}.
+     */
+    public static MultiPatternMatcher compile(Collection<String> patterns) {
+        List<String> normalized = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isBlank()) {
+                continue;
+            }
+            String folded = pattern.toLowerCase(Locale.ROOT);
+            for (int i = 0; i < folded.length(); i++) {
+                if (folded.charAt(i) >= ALPHABET_SIZE) {
+                    throw new IllegalArgumentException("Bot pattern must be ASCII: " + pattern);
+                }
+            }
+            normalized.add(folded);
+        }
+
+        // Build the trie
+        int maxStates = 1 + normalized.stream().mapToInt(String::length).sum();
+        int[] goTo = new int[maxStates * ALPHABET_SIZE];
+        Arrays.fill(goTo, -1);
+        boolean[] accepting = new boolean[maxStates];
+        int stateCount = 1;
+
+        for (String pattern : normalized) {
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                int slot = state * ALPHABET_SIZE + pattern.charAt(i);
+                if (goTo[slot] == -1) {
+                    goTo[slot] = stateCount++;
+                }
+                state = goTo[slot];
+            }
+            accepting[state] = true;
+        }
+
+        // Breadth-first pass: resolve failure links into a full DFA transition table
+        int[] failure = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET_SIZE; c++) {
+            int next = goTo[c];
+            if (next == -1) {
+                goTo[c] = ROOT;
+            } else {
+                failure[next] = ROOT;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            // A state is accepting if any suffix of it is a pattern
+            accepting[state] |= accepting[failure[state]];
+            for (int c = 0; c < ALPHABET_SIZE; c++) {
+                int slot = state * ALPHABET_SIZE + c;
+                int next = goTo[slot];
+                if (next == -1) {
+                    goTo[slot] = goTo[failure[state] * ALPHABET_SIZE + c];
+                } else {
+                    failure[next] = goTo[failure[state] * ALPHABET_SIZE + c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        return new MultiPatternMatcher(
+                Arrays.copyOf(goTo, stateCount * ALPHABET_SIZE),
+                Arrays.copyOf(accepting, stateCount),
+                normalized.isEmpty());
+    }
+
+    /**
+     * @return true if the input contains at least one pattern, ignoring ASCII case
+     */
+    public boolean matches(CharSequence input) {
+        if (empty || input == null) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = 0, length = input.length(); i < length; i++) {
+            char c = input.charAt(i);
+            if (c >= ALPHABET_SIZE) {
+                state = ROOT;
+                continue;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            state = transitions[state * ALPHABET_SIZE + c];
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
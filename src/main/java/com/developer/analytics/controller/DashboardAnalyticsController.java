@@ -1,5 +1,7 @@
 package com.developer.analytics.controller;
 
+import java.util.UUID;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -7,13 +9,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.developer.analytics.sketch.VisitorSketchService;
+import com.developer.analytics.summary.LiveSummaryCounters;
 import com.developer.analytics.summary.PortfolioAnalyticsSummary;
 import com.developer.analytics.summary.PortfolioAnalyticsSummaryRepository;
 import com.developer.analytics.summary.dto.DashboardAnalyticsResponse;
-import com.developer.entity.User;
 import com.developer.exception.ResourceNotFoundException;
 import com.developer.exception.UnauthorizedException;
-import com.developer.repository.UserRepository;
+import com.developer.service.UserIdCache;
 
 /**
  * Controller for dashboard analytics endpoints.
@@ -24,13 +27,19 @@ import com.developer.repository.UserRepository;
 public class DashboardAnalyticsController {
 
     private final PortfolioAnalyticsSummaryRepository summaryRepository;
-    private final UserRepository userRepository;
+    private final UserIdCache userIdCache;
+    private final VisitorSketchService visitorSketchService;
+    private final LiveSummaryCounters liveSummaryCounters;
 
     public DashboardAnalyticsController(
             PortfolioAnalyticsSummaryRepository summaryRepository,
-            UserRepository userRepository) {
+            UserIdCache userIdCache,
+            VisitorSketchService visitorSketchService,
+            LiveSummaryCounters liveSummaryCounters) {
         this.summaryRepository = summaryRepository;
-        this.userRepository = userRepository;
+        this.userIdCache = userIdCache;
+        this.visitorSketchService = visitorSketchService;
+        this.liveSummaryCounters = liveSummaryCounters;
     }
 
     /**
@@ -40,11 +49,12 @@ public class DashboardAnalyticsController {
      */
     @GetMapping("/analytics")
     public ResponseEntity<DashboardAnalyticsResponse> getAnalytics() {
-        User currentUser = getCurrentUser();
+        UUID currentUserId = getCurrentUserId();
 
-        // Fetch summary from database (fast read)
-        PortfolioAnalyticsSummary summary = summaryRepository.findByPortfolioUserId(currentUser.getId())
-                .orElse(createEmptySummary(currentUser.getId()));
+        // Fetch summary from database (fast read) plus deltas not yet flushed by this node
+        PortfolioAnalyticsSummary summary = liveSummaryCounters.withPendingDeltas(
+                summaryRepository.findByPortfolioUserId(currentUserId)
+                        .orElse(createEmptySummary(currentUserId)));
 
         // Convert to response DTO
         DashboardAnalyticsResponse response = new DashboardAnalyticsResponse();
@@ -64,26 +74,29 @@ public class DashboardAnalyticsController {
 
         response.setAvgTimeOnPage(summary.getAvgDurationSeconds());
 
+        // Distinct visitors over the recent window, merged from the daily sketches
+        response.setUniqueVisitors(visitorSketchService.estimateRecentUniqueVisitors(currentUserId));
+
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Gets the current authenticated user.
+     * Gets the current authenticated user's id, without loading the user entity.
      */
-    private User getCurrentUser() {
+    private UUID getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new UnauthorizedException("User not authenticated");
         }
         String username = authentication.getName();
-        return userRepository.findByUsername(username)
+        return userIdCache.findIdByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 
     /**
      * Creates an empty summary for users with no analytics yet.
      */
-    private PortfolioAnalyticsSummary createEmptySummary(java.util.UUID userId) {
+    private PortfolioAnalyticsSummary createEmptySummary(UUID userId) {
         PortfolioAnalyticsSummary empty = new PortfolioAnalyticsSummary();
         empty.setPortfolioUserId(userId);
         empty.setTotalViews(0);
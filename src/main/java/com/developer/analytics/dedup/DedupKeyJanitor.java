@@ -0,0 +1,52 @@
+package com.developer.analytics.dedup;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.analytics.PortfolioAnalyticsService;
+import com.developer.config.AnalyticsDataSourceConfig;
+
+/**
+ * Purges expired claims from {@code portfolio_analytics_dedup_key}.
+ * Idempotent, so it runs on every node without a lease.
+ */
+@Component
+public class DedupKeyJanitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DedupKeyJanitor.class);
+
+    private static final long BUCKET_SECONDS = PortfolioAnalyticsService.DEDUPLICATION_WINDOW_MINUTES * 60L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VisitorDedupProperties properties;
+
+    public DedupKeyJanitor(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            VisitorDedupProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelay = 600_000, initialDelay = 60_000)
+    public void purgeExpiredKeys() {
+        long cutoffBucket = Instant.now()
+                .minus(Math.max(1, properties.getKeyRetentionHours()), ChronoUnit.HOURS)
+                .getEpochSecond() / BUCKET_SECONDS;
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM portfolio_analytics_dedup_key WHERE bucket < ?", cutoffBucket);
+            if (deleted > 0) {
+                logger.debug("Purged {} expired analytics dedup key(s)", deleted);
+            }
+        } catch (Exception e) {
+            // Fail silently - the next run catches up
+            logger.warn("Failed to purge analytics dedup keys: {}", e.getMessage());
+        }
+    }
+}
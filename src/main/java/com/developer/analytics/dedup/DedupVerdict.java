@@ -0,0 +1,11 @@
+package com.developer.analytics.dedup;
+
+/**
+ * Outcome of a de-duplication check for a single tracking event.
+ */
+public enum DedupVerdict {
+    ACCEPTED,
+    DUPLICATE_VIEW,
+    DUPLICATE_ENGAGED,
+    ENGAGED_WITHOUT_VIEW
+}
@@ -0,0 +1,40 @@
+package com.developer.analytics.dedup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for visitor de-duplication (in-memory cache and database dedup keys).
+ * Bound from the {@code app.analytics.dedup} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.dedup")
+public class VisitorDedupProperties {
+
+    /**
+     * Maximum number of (portfolio, visitor) sessions held in memory.
+     */
+    private int maxEntries = 100_000;
+
+    /**
+     * How long database dedup keys are kept. They only need to outlive the de-duplication window
+     * plus the write delay; replays of already stored events are rejected by event id regardless.
+     */
+    private int keyRetentionHours = 24;
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getKeyRetentionHours() {
+        return keyRetentionHours;
+    }
+
+    public void setKeyRetentionHours(int keyRetentionHours) {
+        this.keyRetentionHours = keyRetentionHours;
+    }
+}
@@ -0,0 +1,318 @@
+package com.developer.analytics.dedup;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.analytics.AnalyticsEventType;
+import com.developer.analytics.PortfolioAnalyticsService;
+import com.developer.analytics.visitor.VisitorDictionary;
+import com.developer.config.AnalyticsDataSourceConfig;
+
+/**
+ * Time-windowed cache of visitor sessions keyed by (portfolioUserId, visitorId).
+ *
+ * Each session remembers the last accepted VIEW and ENGAGED timestamps, which is enough to
+ * answer every de-duplication check in {@link PortfolioAnalyticsService} without a database
+ * round trip. Decisions are made atomically per key, so concurrent requests for the same
+ * visitor cannot both be accepted.
+ *
+ * A missing entry is only trusted once the cache has been complete for a full window
+ * (i.e. one window after startup, and one window after the last capacity overflow).
+ * Until then a miss falls back to the database to seed the session.
+ *
+ * The cache only sees the events accepted by this node. With several replicas, the VIEW
+ * preceding an ENGAGED event may have been accepted elsewhere, so an ENGAGED event without
+ * a VIEW in the session is checked against the database before it is rejected. A VIEW still
+ * waiting in another node's write queue is not visible yet, so such an ENGAGED event can
+ * still be rejected. Duplicates accepted on two nodes are caught by the database dedup keys.
+ *
+ * Sessions are keyed by the visitor string so that rejected events never create dictionary
+ * entries; database fallbacks look the key up in the {@link VisitorDictionary}, and a visitor
+ * without a key has no stored events.
+ */
+@Component
+public class VisitorSessionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorSessionCache.class);
+
+    private static final Duration WINDOW = Duration.ofMinutes(PortfolioAnalyticsService.DEDUPLICATION_WINDOW_MINUTES);
+
+    private static final String LATEST_EVENTS_SQL = """
+            SELECT MAX(created_at) FILTER (WHERE event_type = 'VIEW'),
+                   MAX(created_at) FILTER (WHERE event_type = 'ENGAGED')
+            FROM portfolio_analytics_event
+            WHERE portfolio_user_id = ? AND visitor_key = ? AND created_at >= ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VisitorDictionary visitorDictionary;
+    private final int maxEntries;
+    private final Clock clock;
+    private final ConcurrentHashMap<VisitorKey, VisitorSession> sessions = new ConcurrentHashMap<>();
+
+    // Misses before this instant may hide events the cache has not seen
+    private volatile Instant coldUntil;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong coldMissCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong engagedFallbackCount = new AtomicLong();
+
+    public VisitorSessionCache(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            VisitorDictionary visitorDictionary,
+            VisitorDedupProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.visitorDictionary = visitorDictionary;
+        this.maxEntries = Math.max(1, properties.getMaxEntries());
+        this.clock = Clock.systemUTC();
+        this.coldUntil = clock.instant().plus(WINDOW);
+    }
+
+    /**
+     * Checks whether an event would be a duplicate and, if not, records it as accepted.
+     * The check and the update happen atomically for the visitor's session.
+     *
+     * @param portfolioUserId The portfolio owner's user ID
+     * @param visitorId The visitor identifier
+     * @param eventType The event type being tracked
+     * @return The de-duplication verdict; only {@link DedupVerdict#ACCEPTED} events should be persisted
+     */
+    public DedupVerdict tryAccept(UUID portfolioUserId, String visitorId, AnalyticsEventType eventType) {
+        Instant now = clock.instant();
+        Instant since = now.minus(WINDOW);
+        VisitorKey key = new VisitorKey(portfolioUserId, visitorId);
+        boolean storeChecked = false;
+
+        while (true) {
+            VisitorSession session = sessions.get(key);
+            if (session == null) {
+                session = loadSession(key, now, since);
+                if (session == null) {
+                    // Cache is full - answer from the database without caching
+                    return decideUncached(key, eventType, now, since);
+                }
+            } else {
+                hitCount.incrementAndGet();
+            }
+
+            DedupVerdict verdict = session.tryAccept(eventType, now, since);
+            if (verdict == DedupVerdict.ENGAGED_WITHOUT_VIEW && !storeChecked) {
+                // The VIEW may have been accepted by another replica
+                engagedFallbackCount.incrementAndGet();
+                storeChecked = session.merge(loadStoredSession(key, since));
+                continue;
+            }
+            if (verdict != null) {
+                return verdict;
+            }
+            // Session was purged concurrently - retry against the live map
+        }
+    }
+
+    /**
+     * Forgets an accepted event that was lost before it could be stored (dropped or rejected
+     * for its data), so the visitor's next event is not judged against it. Events the database
+     * rejected as duplicates keep their mark: another node stored the same visit.
+     *
+     * @param portfolioUserId The portfolio owner's user ID
+     * @param visitorId The visitor identifier
+     * @param eventType The type of the lost event
+     */
+    public void release(UUID portfolioUserId, String visitorId, AnalyticsEventType eventType) {
+        VisitorSession session = sessions.get(new VisitorKey(portfolioUserId, visitorId));
+        if (session != null) {
+            session.release(eventType);
+        }
+    }
+
+    /**
+     * Returns the session for a key that is not cached yet, seeding it from the
+     * database if the cache cannot yet be trusted to be complete.
+     */
+    private VisitorSession loadSession(VisitorKey key, Instant now, Instant since) {
+        VisitorSession seeded;
+        if (now.isBefore(coldUntil)) {
+            coldMissCount.incrementAndGet();
+            seeded = loadStoredSession(key, since);
+        } else {
+            seeded = new VisitorSession(null, null);
+        }
+
+        if (sessions.size() >= maxEntries) {
+            purgeExpired();
+            if (sessions.size() >= maxEntries) {
+                long overflows = overflowCount.incrementAndGet();
+                if (overflows == 1 || overflows % 1000 == 0) {
+                    logger.warn("Visitor dedup cache full ({} entries), falling back to database checks", maxEntries);
+                }
+                // Entries we could not cache make misses untrustworthy for another window
+                coldUntil = now.plus(WINDOW);
+                return null;
+            }
+        }
+
+        // Another request for the same visitor may have won the race - use its session
+        VisitorSession existing = sessions.putIfAbsent(key, seeded);
+        return existing != null ? existing : seeded;
+    }
+
+    /**
+     * Decides against the stored events alone; the throwaway session is never cached.
+     */
+    private DedupVerdict decideUncached(VisitorKey key, AnalyticsEventType eventType, Instant now, Instant since) {
+        return loadStoredSession(key, since).tryAccept(eventType, now, since);
+    }
+
+    /**
+     * Builds a session from the visitor's latest stored VIEW and ENGAGED events in the window,
+     * in one query on the analytics pool. A visitor without a dictionary key has none.
+     */
+    private VisitorSession loadStoredSession(VisitorKey key, Instant since) {
+        OptionalLong visitorKey = visitorDictionary.find(key.visitorId());
+        if (visitorKey.isEmpty()) {
+            return new VisitorSession(null, null);
+        }
+        return jdbcTemplate.queryForObject(LATEST_EVENTS_SQL,
+                (rs, rowNum) -> new VisitorSession(toInstant(rs.getTimestamp(1)), toInstant(rs.getTimestamp(2))),
+                key.portfolioUserId(), visitorKey.getAsLong(), Timestamp.from(since));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * Removes sessions whose last activity is outside the de-duplication window.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpired() {
+        Instant since = clock.instant().minus(WINDOW);
+        sessions.forEach((key, session) -> {
+            if (session.evictIfExpired(since)) {
+                sessions.remove(key, session);
+            }
+        });
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getColdMissCount() {
+        return coldMissCount.get();
+    }
+
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * @return ENGAGED events without a VIEW in the session that were checked against the database
+     */
+    public long getEngagedFallbackCount() {
+        return engagedFallbackCount.get();
+    }
+
+    private record VisitorKey(UUID portfolioUserId, String visitorId) {
+    }
+
+    /**
+     * Mutable per-visitor state. All access is synchronized on the session itself,
+     * which serializes concurrent requests for the same visitor only.
+     */
+    private static final class VisitorSession {
+
+        private Instant lastViewAt;
+        private Instant lastEngagedAt;
+        private boolean evicted;
+
+        VisitorSession(Instant lastViewAt, Instant lastEngagedAt) {
+            this.lastViewAt = lastViewAt;
+            this.lastEngagedAt = lastEngagedAt;
+        }
+
+        /**
+         * @return The verdict, or null if this session has been evicted and must not be updated
+         */
+        synchronized DedupVerdict tryAccept(AnalyticsEventType eventType, Instant now, Instant since) {
+            if (evicted) {
+                return null;
+            }
+            boolean viewInWindow = lastViewAt != null && !lastViewAt.isBefore(since);
+
+            if (eventType == AnalyticsEventType.VIEW) {
+                if (viewInWindow) {
+                    return DedupVerdict.DUPLICATE_VIEW;
+                }
+                lastViewAt = now;
+                return DedupVerdict.ACCEPTED;
+            }
+
+            if (!viewInWindow) {
+                return DedupVerdict.ENGAGED_WITHOUT_VIEW;
+            }
+            if (lastEngagedAt != null && !lastEngagedAt.isBefore(since)) {
+                return DedupVerdict.DUPLICATE_ENGAGED;
+            }
+            lastEngagedAt = now;
+            return DedupVerdict.ACCEPTED;
+        }
+
+        /**
+         * Adopts stored events newer than the ones this session has seen.
+         *
+         * @return false if this session has been evicted and must not be updated
+         */
+        synchronized boolean merge(VisitorSession stored) {
+            if (evicted) {
+                return false;
+            }
+            lastViewAt = later(lastViewAt, stored.lastViewAt);
+            lastEngagedAt = later(lastEngagedAt, stored.lastEngagedAt);
+            return true;
+        }
+
+        private static Instant later(Instant a, Instant b) {
+            if (a == null) {
+                return b;
+            }
+            return b != null && b.isAfter(a) ? b : a;
+        }
+
+        /**
+         * An accepted event is never preceded by one of the same type in the window,
+         * so clearing the mark restores the state from before it was accepted.
+         */
+        synchronized void release(AnalyticsEventType eventType) {
+            if (eventType == AnalyticsEventType.VIEW) {
+                lastViewAt = null;
+            } else {
+                lastEngagedAt = null;
+            }
+        }
+
+        synchronized boolean evictIfExpired(Instant since) {
+            evicted = (lastViewAt == null || lastViewAt.isBefore(since))
+                    && (lastEngagedAt == null || lastEngagedAt.isBefore(since));
+            return evicted;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.developer.analytics.AnalyticsEventType;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -24,6 +25,8 @@ public class AnalyticsTrackingRequest {
     private Integer scrollDepth;
 
     // Optional: visitor ID can be sent in request body as fallback
+    // Bounded by analytics_visitor.visitor_id (VARCHAR(255))
+    @Size(max = 255, message = "Visitor ID must be at most 255 characters")
     private String visitorId;
 }
 
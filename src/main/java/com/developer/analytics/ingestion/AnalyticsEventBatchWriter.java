@@ -0,0 +1,228 @@
+package com.developer.analytics.ingestion;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.developer.analytics.AnalyticsEventType;
+import com.developer.analytics.PortfolioAnalyticsService;
+import com.developer.analytics.aggregation.DirtyPortfolioTracker;
+import com.developer.analytics.sketch.VisitorSketchService;
+import com.developer.analytics.summary.LiveSummaryCounters;
+import com.developer.analytics.visitor.VisitorDictionary;
+import com.developer.config.AnalyticsDataSourceConfig;
+
+/**
+ * Writes pending analytics events to {@code portfolio_analytics_event} using multi-row
+ * INSERT statements, bypassing the ORM so a batch costs one round trip per chunk.
+ * Inserts are idempotent: rows whose id already exists are skipped, so replaying
+ * a partially written batch is safe.
+ *
+ * The same statement adds the rows it actually inserted to the trend rollups
+ * ({@code portfolio_analytics_hourly} and {@code portfolio_analytics_daily}),
+ * so they are exact and never double count replayed events.
+ *
+ * Visitor ids are stored as keys from the {@link VisitorDictionary}, resolved once per chunk.
+ *
+ * Only rows the database actually inserted mark their portfolio dirty, update the live
+ * summary counters and (for VIEWs) the unique visitor sketches, after their statement
+ * committed, so duplicates and failed writes are never counted.
+ *
+ * De-duplication is also enforced here, in the database: every event claims a unique
+ * (portfolio, visitor, type, time bucket) key in {@code portfolio_analytics_dedup_key}
+ * in the same statement, so two nodes accepting the same visit concurrently insert it once.
+ */
+@Component
+public class AnalyticsEventBatchWriter {
+
+    // Dedup claims use fixed buckets of the de-duplication window. Two events the in-memory
+    // sliding window accepts are at least one window apart, so they never share a bucket.
+    static final long DEDUP_BUCKET_SECONDS = PortfolioAnalyticsService.DEDUPLICATION_WINDOW_MINUTES * 60L;
+
+    /**
+     * Tail shared with {@link AnalyticsEventCopyLoader}, run against a {@code batch} CTE of new rows:
+     * 1. Claims each event's dedup key; a key claimed earlier (by any node) rejects the event
+     * 2. Inserts the claimed events, skipping ids that already exist
+     * 3. Adds the inserted rows to the trend rollups and returns their ids
+     * Sorted so concurrent writers lock keys and rollup rows in the same order.
+     */
+    static final String INSERT_FROM_BATCH_SQL = """
+            claimed AS (
+                INSERT INTO portfolio_analytics_dedup_key (portfolio_user_id, visitor_key, event_type, bucket, event_id)
+                SELECT portfolio_user_id, visitor_key, event_type,
+                       CAST(FLOOR(EXTRACT(EPOCH FROM created_at) / %d) AS BIGINT), id
+                FROM batch
+                ORDER BY 1, 2, 3, 4
+                ON CONFLICT DO NOTHING
+                RETURNING event_id
+            ),
+            inserted AS (
+                INSERT INTO portfolio_analytics_event
+                    (id, portfolio_user_id, visitor_key, event_type, duration_seconds, scroll_depth, user_agent, created_at)
+                SELECT b.id, b.portfolio_user_id, b.visitor_key, b.event_type,
+                       b.duration_seconds, b.scroll_depth, b.user_agent, b.created_at
+                FROM batch b
+                JOIN claimed c ON c.event_id = b.id
+                ON CONFLICT DO NOTHING
+                RETURNING id, portfolio_user_id, event_type, created_at
+            ),
+            hourly AS (
+                INSERT INTO portfolio_analytics_hourly AS h (portfolio_user_id, hour, event_type, event_count)
+                SELECT portfolio_user_id, date_trunc('hour', created_at), event_type, COUNT(*)
+                FROM inserted
+                GROUP BY 1, 2, 3
+                ORDER BY 1, 2, 3
+                ON CONFLICT (portfolio_user_id, hour, event_type) DO UPDATE SET
+                    event_count = h.event_count + EXCLUDED.event_count
+            ),
+            daily AS (
+                INSERT INTO portfolio_analytics_daily AS d (portfolio_user_id, day, event_type, event_count)
+                SELECT portfolio_user_id, DATE(created_at), event_type, COUNT(*)
+                FROM inserted
+                GROUP BY 1, 2, 3
+                ORDER BY 1, 2, 3
+                ON CONFLICT (portfolio_user_id, day, event_type) DO UPDATE SET
+                    event_count = d.event_count + EXCLUDED.event_count
+            )
+            SELECT id FROM inserted
+            """.formatted(DEDUP_BUCKET_SECONDS);
+
+    private static final String INSERT_PREFIX = """
+            WITH batch (id, portfolio_user_id, visitor_key, event_type, duration_seconds, scroll_depth, user_agent, created_at) AS (
+                VALUES\s""";
+
+    private static final String INSERT_SUFFIX = """
+
+            ),
+            """ + INSERT_FROM_BATCH_SQL;
+
+    // Explicit casts: VALUES in a CTE does not take its column types from an INSERT target
+    private static final String ROW_PLACEHOLDER = "(CAST(? AS UUID), CAST(? AS UUID), CAST(? AS BIGINT), "
+            + "CAST(? AS analytics_event_type), CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS VARCHAR), "
+            + "CAST(? AS TIMESTAMPTZ))";
+
+    private static final int COLUMNS_PER_ROW = 8;
+
+    // PostgreSQL caps bind parameters per statement at 32767
+    private static final int MAX_ROWS_PER_STATEMENT = 32767 / COLUMNS_PER_ROW;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VisitorDictionary visitorDictionary;
+    private final AnalyticsEventCopyLoader copyLoader;
+    private final AnalyticsIngestionProperties properties;
+    private final DirtyPortfolioTracker dirtyPortfolioTracker;
+    private final LiveSummaryCounters liveSummaryCounters;
+    private final VisitorSketchService visitorSketchService;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public AnalyticsEventBatchWriter(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            VisitorDictionary visitorDictionary,
+            AnalyticsEventCopyLoader copyLoader,
+            AnalyticsIngestionProperties properties,
+            DirtyPortfolioTracker dirtyPortfolioTracker,
+            LiveSummaryCounters liveSummaryCounters,
+            VisitorSketchService visitorSketchService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.visitorDictionary = visitorDictionary;
+        this.copyLoader = copyLoader;
+        this.properties = properties;
+        this.dirtyPortfolioTracker = dirtyPortfolioTracker;
+        this.liveSummaryCounters = liveSummaryCounters;
+        this.visitorSketchService = visitorSketchService;
+    }
+
+    /**
+     * Inserts the given events, splitting them into as few statements as the driver allows.
+     * Lists of at least {@code copy-min-rows} events are bulk loaded with COPY instead.
+     * Must not run inside a transaction: inserted rows are recorded as soon as their statement returns.
+     *
+     * @param events The events to persist
+     * @return The number of rows inserted; events rejected as duplicates or already stored are not counted
+     */
+    public int writeBatch(List<PendingAnalyticsEvent> events) {
+        int inserted = 0;
+        int copyMinRows = properties.getCopyMinRows();
+        if (copyMinRows > 0 && events.size() >= copyMinRows) {
+            inserted = recordInserted(events, copyLoader.load(events));
+        } else {
+            for (int from = 0; from < events.size(); from += MAX_ROWS_PER_STATEMENT) {
+                List<PendingAnalyticsEvent> chunk = events.subList(from,
+                        Math.min(events.size(), from + MAX_ROWS_PER_STATEMENT));
+                inserted += recordInserted(chunk, insertChunk(chunk));
+            }
+        }
+        rejectedCount.addAndGet(events.size() - inserted);
+        return inserted;
+    }
+
+    /**
+     * @return Events not inserted because their dedup key was already claimed or their id already existed
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Applies the in-memory effects of the events that were stored.
+     *
+     * @return The number of events inserted
+     */
+    private int recordInserted(List<PendingAnalyticsEvent> events, Set<UUID> insertedIds) {
+        if (insertedIds.isEmpty()) {
+            return 0;
+        }
+        for (PendingAnalyticsEvent event : events) {
+            if (!insertedIds.contains(event.id())) {
+                continue;
+            }
+            dirtyPortfolioTracker.markDirty(event.portfolioUserId());
+            liveSummaryCounters.record(event.portfolioUserId(), event.eventType());
+            if (event.eventType() == AnalyticsEventType.VIEW) {
+                visitorSketchService.recordVisitor(event.portfolioUserId(), event.visitorId(), event.createdAt());
+            }
+        }
+        return insertedIds.size();
+    }
+
+    private Set<UUID> insertChunk(List<PendingAnalyticsEvent> chunk) {
+        if (chunk.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<String, Long> visitorKeys = visitorDictionary.resolveAll(
+                chunk.stream().map(PendingAnalyticsEvent::visitorId).toList());
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(chunk.size() * COLUMNS_PER_ROW);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+
+            PendingAnalyticsEvent event = chunk.get(i);
+            args.add(event.id());
+            args.add(event.portfolioUserId());
+            args.add(visitorKeys.get(event.visitorId()));
+            args.add(event.eventType().name());
+            args.add(event.durationSeconds());
+            args.add(event.scrollDepth());
+            args.add(event.userAgent());
+            args.add(Timestamp.from(event.createdAt()));
+        }
+
+        sql.append(INSERT_SUFFIX);
+        return new HashSet<>(jdbcTemplate.queryForList(sql.toString(), UUID.class, args.toArray()));
+    }
+}
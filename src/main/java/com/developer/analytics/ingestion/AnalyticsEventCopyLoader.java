@@ -0,0 +1,179 @@
+package com.developer.analytics.ingestion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.developer.analytics.visitor.VisitorDictionary;
+import com.developer.config.AnalyticsDataSourceConfig;
+
+/**
+ * Bulk loads analytics events with PostgreSQL {@code COPY}.
+ *
+ * Rows are streamed in CSV format into a session-local staging table, then moved into
+ * {@code portfolio_analytics_event} by the same statement shape as
+ * {@link AnalyticsEventBatchWriter}: dedup keys are claimed, existing ids are skipped and only
+ * the rows actually inserted are added to the trend rollups, so loads are idempotent and can be retried.
+ *
+ * {@link AnalyticsEventBatchWriter} switches to it for large writes, i.e. whole spool segments on replay.
+ */
+@Component
+public class AnalyticsEventCopyLoader {
+
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS analytics_event_load (
+                id UUID NOT NULL,
+                portfolio_user_id UUID NOT NULL,
+                visitor_key BIGINT NOT NULL,
+                event_type TEXT NOT NULL,
+                duration_seconds INTEGER,
+                scroll_depth INTEGER,
+                user_agent TEXT,
+                created_at TIMESTAMPTZ NOT NULL
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_SQL = """
+            COPY analytics_event_load
+                (id, portfolio_user_id, visitor_key, event_type, duration_seconds, scroll_depth, user_agent, created_at)
+            FROM STDIN (FORMAT csv)
+            """;
+
+    private static final String MOVE_SQL = """
+            WITH batch AS (
+                SELECT id, portfolio_user_id, visitor_key, CAST(event_type AS analytics_event_type) AS event_type,
+                       duration_seconds, scroll_depth, user_agent, created_at
+                FROM analytics_event_load
+            ),
+            """ + AnalyticsEventBatchWriter.INSERT_FROM_BATCH_SQL;
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final VisitorDictionary visitorDictionary;
+
+    public AnalyticsEventCopyLoader(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) DataSource dataSource,
+            VisitorDictionary visitorDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.visitorDictionary = visitorDictionary;
+    }
+
+    /**
+     * Loads the given events in one transaction.
+     *
+     * @param events The events to persist
+     * @return The ids of the rows inserted (duplicates and events whose id already existed are skipped)
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public Set<UUID> load(List<PendingAnalyticsEvent> events) {
+        if (events.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<String, Long> visitorKeys = visitorDictionary.resolveAll(
+                events.stream().map(PendingAnalyticsEvent::visitorId).toList());
+
+        jdbcTemplate.execute(CREATE_STAGING_SQL);
+
+        // Same connection as the surrounding transaction, so the staging rows stay visible
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PGCopyOutputStream copy = new PGCopyOutputStream(
+                connection.unwrap(PGConnection.class), COPY_SQL, COPY_BUFFER_BYTES);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8))) {
+            for (PendingAnalyticsEvent event : events) {
+                writeRow(writer, event, visitorKeys.get(event.visitorId()));
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } catch (IOException e) {
+            // The driver reports server-side COPY errors (e.g. bad rows) as an IOException around the SQLException
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw translate(sqlException);
+            }
+            throw new DataAccessResourceFailureException("COPY of analytics events failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        return new HashSet<>(jdbcTemplate.queryForList(MOVE_SQL, UUID.class));
+    }
+
+    /**
+     * Classifies a driver error the same way JdbcTemplate would, so data errors are not
+     * mistaken for an unreachable database.
+     */
+    private DataAccessException translate(SQLException e) {
+        DataAccessException translated = jdbcTemplate.getExceptionTranslator()
+                .translate("COPY analytics events", COPY_SQL, e);
+        return translated != null ? translated : new UncategorizedSQLException("COPY analytics events", COPY_SQL, e);
+    }
+
+    private static void writeRow(Writer writer, PendingAnalyticsEvent event, long visitorKey) throws IOException {
+        writer.write(event.id().toString());
+        writer.write(',');
+        writer.write(event.portfolioUserId().toString());
+        writer.write(',');
+        writer.write(Long.toString(visitorKey));
+        writer.write(',');
+        writer.write(event.eventType().name());
+        writer.write(',');
+        writeNullable(writer, event.durationSeconds());
+        writer.write(',');
+        writeNullable(writer, event.scrollDepth());
+        writer.write(',');
+        writeText(writer, event.userAgent());
+        writer.write(',');
+        // ISO-8601 with the Z designator is read as UTC regardless of the session time zone
+        writer.write(event.createdAt().toString());
+        writer.write('\n');
+    }
+
+    private static void writeNullable(Writer writer, Integer value) throws IOException {
+        // An unquoted empty field is NULL in CSV format
+        if (value != null) {
+            writer.write(value.toString());
+        }
+    }
+
+    private static void writeText(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        // Always quoted: keeps empty strings distinct from NULL and protects commas and newlines
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
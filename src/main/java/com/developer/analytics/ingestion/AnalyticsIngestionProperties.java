@@ -0,0 +1,105 @@
+package com.developer.analytics.ingestion;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for how accepted analytics events are written to the database.
+ * Bound from the {@code app.analytics.ingestion} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.ingestion")
+public class AnalyticsIngestionProperties {
+
+    public enum Mode {
+        /**
+         * Events are saved on the request thread inside the tracking transaction.
+         */
+        SYNC,
+        /**
+         * Events are queued in memory and flushed in batches by a background writer.
+         */
+        ASYNC
+    }
+
+    private Mode mode = Mode.SYNC;
+
+    /**
+     * Maximum number of events held in memory before new events are dropped.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Maximum number of events written in a single multi-row insert.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Writes of at least this many events use COPY instead of multi-row inserts; 0 disables COPY.
+     * Spool replays write whole segments. Kept above {@code batch-size}, so async batches stay on
+     * the multi-row insert until AnalyticsEventWriteBenchmark shows COPY winning at that size.
+     */
+    private int copyMinRows = 1_000;
+
+    /**
+     * How long the writer waits for a batch to fill up before flushing a partial batch.
+     */
+    private long lingerMillis = 200;
+
+    /**
+     * Upper bound on how long a graceful shutdown waits for the queue to drain.
+     */
+    private long shutdownTimeoutMillis = 10_000;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public boolean isAsync() {
+        return mode == Mode.ASYNC;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getCopyMinRows() {
+        return copyMinRows;
+    }
+
+    public void setCopyMinRows(int copyMinRows) {
+        this.copyMinRows = copyMinRows;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public void setLingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    public long getShutdownTimeoutMillis() {
+        return shutdownTimeoutMillis;
+    }
+
+    public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+}
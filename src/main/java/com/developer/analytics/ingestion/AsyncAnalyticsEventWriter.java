@@ -0,0 +1,267 @@
+package com.developer.analytics.ingestion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.analytics.dedup.VisitorSessionCache;
+import com.developer.analytics.spool.AnalyticsEventSpool;
+
+/**
+ * Bounded in-memory queue plus a single background writer that flushes accepted
+ * analytics events to the database in batches.
+ *
+ * Behavior:
+ * - {@link #enqueue} never blocks the request thread; when the queue is full the event is dropped and
+ *   counted (spooling it there would serialize every request on the spool's fsync under overload)
+ * - The writer flushes when a batch is full or when the linger time has elapsed since the first queued event
+ * - Batches that cannot reach the database (or arrive while it is backing off) are spooled for later replay;
+ *   batches the database rejects for their data are dropped and counted as failed
+ * - Dropped and failed events are released from their visitor sessions, since they were never stored
+ * - On graceful shutdown the queue is drained (bounded by the configured shutdown timeout) after the
+ *   web server has stopped accepting requests; a flush in progress is never interrupted
+ */
+@Component
+public class AsyncAnalyticsEventWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncAnalyticsEventWriter.class);
+
+    private final AnalyticsIngestionProperties properties;
+    private final AnalyticsEventBatchWriter batchWriter;
+    private final AnalyticsEventSpool spool;
+    private final VisitorSessionCache visitorSessionCache;
+    private final BlockingQueue<PendingAnalyticsEvent> queue;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong spooledCount = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AsyncAnalyticsEventWriter(
+            AnalyticsIngestionProperties properties,
+            AnalyticsEventBatchWriter batchWriter,
+            AnalyticsEventSpool spool,
+            VisitorSessionCache visitorSessionCache) {
+        this.properties = properties;
+        this.batchWriter = batchWriter;
+        this.spool = spool;
+        this.visitorSessionCache = visitorSessionCache;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+    }
+
+    /**
+     * Offers an event to the write queue without blocking.
+     *
+     * @param event The validated event to persist
+     * @return true if the event was queued, false if it was dropped
+     */
+    public boolean enqueue(PendingAnalyticsEvent event) {
+        if (!running || !queue.offer(event)) {
+            // Backpressure: the writer cannot keep up, even by spooling whole batches
+            release(List.of(event));
+            long dropped = droppedCount.incrementAndGet();
+            // Log the first drop and then every 1000th to avoid flooding logs under load
+            if (dropped == 1 || dropped % 1000 == 0) {
+                logger.warn("Analytics write queue full or stopped, {} event(s) dropped so far", dropped);
+            }
+            return false;
+        }
+        enqueuedCount.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isAsync() || running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriterLoop, "analytics-event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Started async analytics writer (capacity={}, batchSize={}, lingerMs={})",
+                properties.getQueueCapacity(), properties.getBatchSize(), properties.getLingerMillis());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // No interrupt: the writer notices within its poll timeout and finishes the current flush
+        running = false;
+        try {
+            // Covers the longest idle poll and linger, plus the drain's own time budget
+            writerThread.join(TimeUnit.SECONDS.toMillis(1) + properties.getLingerMillis()
+                    + properties.getShutdownTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Async analytics writer stopped with {} event(s) still queued", queue.size());
+        }
+        logger.info("Stopped async analytics writer (enqueued={}, written={}, spooled={}, dropped={}, failed={})",
+                enqueuedCount.get(), writtenCount.get(), spooledCount.get(), droppedCount.get(), failedCount.get());
+    }
+
+    /**
+     * Logs the queue depth and counters since startup every five minutes while the writer runs,
+     * so operators can see backpressure drops without a metrics endpoint.
+     */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void logSummary() {
+        if (!running) {
+            return;
+        }
+        logger.info("Async analytics writer: {} event(s) queued; since startup {} enqueued, {} written, {} spooled, "
+                        + "{} dropped, {} failed",
+                queue.size(), enqueuedCount.get(), writtenCount.get(), spooledCount.get(), droppedCount.get(),
+                failedCount.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop after the web server: graceful shutdown ({@code WebServerGracefulShutdownLifecycle})
+     * runs at {@code DEFAULT_PHASE - 1024} and the server stops at {@code DEFAULT_PHASE - 2048},
+     * so no request can enqueue events once the writer drains. Datasources are only closed after
+     * all lifecycle beans have stopped.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void runWriterLoop() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<PendingAnalyticsEvent> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                PendingAnalyticsEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getLingerMillis());
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingAnalyticsEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Not interrupted by stop(); only a JVM-level interrupt gets here
+                break;
+            }
+        }
+
+        drain(batch, batchSize);
+    }
+
+    private void drain(List<PendingAnalyticsEvent> batch, int batchSize) {
+        // Clear any interrupt so connection acquisition is not aborted while draining
+        Thread.interrupted();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getShutdownTimeoutMillis());
+        while (System.nanoTime() < deadline) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty()) {
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<PendingAnalyticsEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (!spool.isDatabaseAvailable()) {
+                spoolOrFail(batch);
+                return;
+            }
+            int written = batchWriter.writeBatch(batch);
+            writtenCount.addAndGet(written);
+            logger.debug("Flushed {} analytics event(s)", written);
+        } catch (Exception e) {
+            // Fail silently - analytics must never take the application down
+            if (AnalyticsEventSpool.isDatabaseUnavailable(e)) {
+                spool.markDatabaseFailure();
+                logger.warn("Failed to flush {} analytics event(s): {}", batch.size(), e.getMessage(), e);
+                spoolOrFail(batch);
+            } else {
+                // Rejected for its data - a replay would fail the same way, so don't spool it
+                failedCount.addAndGet(batch.size());
+                release(batch);
+                logger.error("Analytics batch of {} event(s) rejected by the database, dropped: {}",
+                        batch.size(), e.getMessage(), e);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void spoolOrFail(List<PendingAnalyticsEvent> batch) {
+        if (spool.append(batch)) {
+            spooledCount.addAndGet(batch.size());
+        } else {
+            failedCount.addAndGet(batch.size());
+            release(batch);
+        }
+    }
+
+    private void release(List<PendingAnalyticsEvent> events) {
+        for (PendingAnalyticsEvent event : events) {
+            visitorSessionCache.release(event.portfolioUserId(), event.visitorId(), event.eventType());
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getSpooledCount() {
+        return spooledCount.get();
+    }
+}
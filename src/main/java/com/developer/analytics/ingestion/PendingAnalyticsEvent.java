@@ -0,0 +1,21 @@
+package com.developer.analytics.ingestion;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import com.developer.analytics.AnalyticsEventType;
+
+/**
+ * A validated analytics event that has been accepted for persistence but not yet written.
+ * Carries only the portfolio owner's id so no {@code User} entity is held in memory.
+ */
+public record PendingAnalyticsEvent(
+        UUID id,
+        UUID portfolioUserId,
+        String visitorId,
+        AnalyticsEventType eventType,
+        Integer durationSeconds,
+        Integer scrollDepth,
+        String userAgent,
+        Instant createdAt) {
+}
@@ -0,0 +1,135 @@
+package com.developer.analytics.partition;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Keeps the monthly partitions of {@code portfolio_analytics_event} in shape:
+ * - Pre-creates partitions for the current month and the configured number of months ahead
+ * - Detaches (or drops) partitions older than the configured retention
+ *
+ * Partitions are created through the {@code create_portfolio_analytics_event_partition}
+ * function (last replaced by the V24 migration), so naming and bounds stay in one place. Months
+ * are UTC months, bounded by UTC midnights, and rows the DEFAULT partition already caught for a
+ * month are moved into its new partition. Each partition change runs in its own transaction that
+ * checks the lease's fencing token first.
+ */
+@Component
+public class AnalyticsPartitionMaintenanceJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsPartitionMaintenanceJob.class);
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("portfolio_analytics_event_y(\\d{4})m(\\d{2})");
+
+    private static final String LIST_PARTITIONS_SQL = """
+            SELECT child.relname
+            FROM pg_inherits inh
+            JOIN pg_class parent ON parent.oid = inh.inhparent
+            JOIN pg_class child ON child.oid = inh.inhrelid
+            WHERE parent.relname = 'portfolio_analytics_event'
+            """;
+
+    private static final String LEASE_NAME = "analytics-partition-maintenance";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AnalyticsPartitionProperties properties;
+    private final SchedulerLeaseService leaseService;
+
+    public AnalyticsPartitionMaintenanceJob(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            @Qualifier(AnalyticsDataSourceConfig.TRANSACTION_MANAGER) PlatformTransactionManager transactionManager,
+            AnalyticsPartitionProperties properties,
+            SchedulerLeaseService leaseService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.leaseService = leaseService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void maintainPartitions() {
+        Optional<SchedulerLeaseService.Lease> lease = leaseService.tryAcquire(LEASE_NAME);
+        if (lease.isEmpty()) {
+            logger.debug("Skipping analytics partition maintenance, another node is the leader");
+            return;
+        }
+
+        try (SchedulerLeaseService.Lease held = lease.get()) {
+            YearMonth currentMonth = YearMonth.now(ZoneOffset.UTC);
+            createFuturePartitions(currentMonth, held);
+            if (properties.getRetentionMonths() > 0 && held.isHeld()) {
+                expireOldPartitions(currentMonth.minusMonths(properties.getRetentionMonths()), held);
+            }
+        } catch (Exception e) {
+            logger.error("Analytics partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void createFuturePartitions(YearMonth currentMonth, SchedulerLeaseService.Lease lease) {
+        for (int offset = 0; offset <= properties.getMonthsAhead(); offset++) {
+            LocalDate monthStart = currentMonth.plusMonths(offset).atDay(1);
+            String partition = transactionTemplate.execute(status -> {
+                lease.checkFence(jdbcTemplate);
+                return jdbcTemplate.queryForObject(
+                        "SELECT create_portfolio_analytics_event_partition(?)", String.class, monthStart);
+            });
+            logger.debug("Ensured analytics partition {}", partition);
+        }
+    }
+
+    /**
+     * Removes every monthly partition that ends on or before the start of the cutoff month.
+     */
+    private void expireOldPartitions(YearMonth cutoffMonth, SchedulerLeaseService.Lease lease) {
+        List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue; // Default partition or foreign naming - leave alone
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(cutoffMonth)) {
+                continue;
+            }
+
+            // Names come from pg_class and match PARTITION_NAME, so they are safe to inline
+            transactionTemplate.executeWithoutResult(status -> {
+                lease.checkFence(jdbcTemplate);
+                jdbcTemplate.execute("ALTER TABLE portfolio_analytics_event DETACH PARTITION " + partition);
+                if (properties.isDropExpired()) {
+                    jdbcTemplate.execute("DROP TABLE " + partition);
+                }
+            });
+            if (properties.isDropExpired()) {
+                logger.info("Dropped expired analytics partition {}", partition);
+            } else {
+                logger.info("Detached expired analytics partition {}", partition);
+            }
+        }
+    }
+}
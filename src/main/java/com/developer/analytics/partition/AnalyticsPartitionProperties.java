@@ -0,0 +1,52 @@
+package com.developer.analytics.partition;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for monthly partition maintenance of {@code portfolio_analytics_event}.
+ * Bound from the {@code app.analytics.partitions} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.partitions")
+public class AnalyticsPartitionProperties {
+
+    /**
+     * Number of future months to keep pre-created.
+     */
+    private int monthsAhead = 3;
+
+    /**
+     * Months of raw events to keep; older partitions are detached (or dropped). 0 keeps everything.
+     */
+    private int retentionMonths = 0;
+
+    /**
+     * Drop expired partitions instead of only detaching them.
+     */
+    private boolean dropExpired = false;
+
+    public int getMonthsAhead() {
+        return monthsAhead;
+    }
+
+    public void setMonthsAhead(int monthsAhead) {
+        this.monthsAhead = monthsAhead;
+    }
+
+    public int getRetentionMonths() {
+        return retentionMonths;
+    }
+
+    public void setRetentionMonths(int retentionMonths) {
+        this.retentionMonths = retentionMonths;
+    }
+
+    public boolean isDropExpired() {
+        return dropExpired;
+    }
+
+    public void setDropExpired(boolean dropExpired) {
+        this.dropExpired = dropExpired;
+    }
+}
@@ -0,0 +1,113 @@
+package com.developer.analytics.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for flood protection on the public tracking endpoints.
+ * Bound from the {@code app.analytics.rate-limit} namespace.
+ *
+ * Each dimension is a token bucket: {@code capacity} is the allowed burst and
+ * {@code refill-per-second} the sustained rate. One tracked event costs one token.
+ * Client IPs are the servlet remote address. The per-IP limit only applies when that address
+ * is the client's: {@code server.forward-headers-strategy} is {@code native} or {@code framework},
+ * or {@code remote-address-is-client} says clients connect directly. Otherwise every request
+ * would share the reverse proxy's bucket.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.rate-limit")
+public class TrackingRateLimitProperties {
+
+    private boolean enabled = true;
+
+    private int visitorCapacity = 30;
+    private double visitorRefillPerSecond = 0.5;
+
+    private int ipCapacity = 120;
+    private double ipRefillPerSecond = 5;
+
+    /**
+     * Clients connect without a reverse proxy, so the remote address can be limited as is.
+     */
+    private boolean remoteAddressIsClient = false;
+
+    private int portfolioCapacity = 1_000;
+    private double portfolioRefillPerSecond = 100;
+
+    /**
+     * Maximum number of buckets kept per dimension. Idle buckets are dropped first.
+     */
+    private int maxKeys = 100_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getVisitorCapacity() {
+        return visitorCapacity;
+    }
+
+    public void setVisitorCapacity(int visitorCapacity) {
+        this.visitorCapacity = visitorCapacity;
+    }
+
+    public double getVisitorRefillPerSecond() {
+        return visitorRefillPerSecond;
+    }
+
+    public void setVisitorRefillPerSecond(double visitorRefillPerSecond) {
+        this.visitorRefillPerSecond = visitorRefillPerSecond;
+    }
+
+    public int getIpCapacity() {
+        return ipCapacity;
+    }
+
+    public void setIpCapacity(int ipCapacity) {
+        this.ipCapacity = ipCapacity;
+    }
+
+    public double getIpRefillPerSecond() {
+        return ipRefillPerSecond;
+    }
+
+    public void setIpRefillPerSecond(double ipRefillPerSecond) {
+        this.ipRefillPerSecond = ipRefillPerSecond;
+    }
+
+    public boolean isRemoteAddressIsClient() {
+        return remoteAddressIsClient;
+    }
+
+    public void setRemoteAddressIsClient(boolean remoteAddressIsClient) {
+        this.remoteAddressIsClient = remoteAddressIsClient;
+    }
+
+    public int getPortfolioCapacity() {
+        return portfolioCapacity;
+    }
+
+    public void setPortfolioCapacity(int portfolioCapacity) {
+        this.portfolioCapacity = portfolioCapacity;
+    }
+
+    public double getPortfolioRefillPerSecond() {
+        return portfolioRefillPerSecond;
+    }
+
+    public void setPortfolioRefillPerSecond(double portfolioRefillPerSecond) {
+        this.portfolioRefillPerSecond = portfolioRefillPerSecond;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+}
@@ -0,0 +1,210 @@
+package com.developer.analytics.ratelimit;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory flood protection for the public tracking endpoints, checked before any
+ * database access.
+ *
+ * Requests are limited per client IP, per target portfolio and per visitor id, each with its
+ * own token bucket. The IP dimension is skipped unless a client IP source is configured
+ * (see {@link TrackingRateLimitProperties}), since behind a proxy all requests share one address. A bucket is a single {@link AtomicLong} holding its "theoretical arrival
+ * time" (GCRA): taking tokens is one compare-and-set, so there are no locks and concurrent
+ * requests only contend on the same key.
+ *
+ * A bucket that has refilled completely is indistinguishable from a new one, so idle buckets
+ * are dropped without losing state. Tokens taken from an earlier dimension are not returned
+ * when a later one rejects the request.
+ */
+@Component
+public class TrackingRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingRateLimiter.class);
+
+    // Fraction of buckets removed when a dimension is full of active buckets
+    private static final int EVICTION_DIVISOR = 20;
+
+    private final TrackingRateLimitProperties properties;
+    private final boolean ipLimited;
+    private final Dimension ips;
+    private final Dimension portfolios;
+    private final Dimension visitors;
+
+    private final AtomicLong allowedCount = new AtomicLong();
+
+    public TrackingRateLimiter(TrackingRateLimitProperties properties, Environment environment) {
+        this.properties = properties;
+        String forwardHeaders = environment.getProperty("server.forward-headers-strategy", "none");
+        this.ipLimited = properties.isRemoteAddressIsClient() || !"none".equalsIgnoreCase(forwardHeaders.trim());
+        if (properties.isEnabled() && !ipLimited) {
+            logger.warn("Per-IP tracking rate limit disabled: no forward-headers strategy and remote-address-is-client is off");
+        }
+        int maxKeys = Math.max(1, properties.getMaxKeys());
+        this.ips = new Dimension(properties.getIpCapacity(), properties.getIpRefillPerSecond(), maxKeys);
+        this.portfolios = new Dimension(properties.getPortfolioCapacity(), properties.getPortfolioRefillPerSecond(), maxKeys);
+        this.visitors = new Dimension(properties.getVisitorCapacity(), properties.getVisitorRefillPerSecond(), maxKeys);
+    }
+
+    /**
+     * Takes tokens for a tracking request. Null keys skip their dimension.
+     *
+     * @param clientIp The client address, ignored unless a client IP source is configured
+     * @param username The target portfolio's username, as requested
+     * @param visitorId The visitor id, if known before parsing events
+     * @param events Number of events in the request; each costs one token
+     * @return true if the request may be processed
+     */
+    public boolean tryAcquire(String clientIp, String username, String visitorId, int events) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        int permits = Math.max(1, events);
+        long now = System.nanoTime();
+        if (ipLimited && clientIp != null && !ips.tryAcquire(clientIp, permits, now)) {
+            return false;
+        }
+        if (username != null && !portfolios.tryAcquire(username, permits, now)) {
+            return false;
+        }
+        if (visitorId != null && !visitors.tryAcquire(visitorId, permits, now)) {
+            return false;
+        }
+        allowedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Takes tokens from one visitor's bucket only, for batches whose events carry their own
+     * visitor ids; the request itself is charged with {@link #tryAcquire} first.
+     *
+     * @param visitorId The visitor id
+     * @param events Number of the visitor's events; each costs one token
+     * @return true if the visitor's events may be processed
+     */
+    public boolean tryAcquireVisitor(String visitorId, int events) {
+        if (!properties.isEnabled() || visitorId == null) {
+            return true;
+        }
+        return visitors.tryAcquire(visitorId, Math.max(1, events), System.nanoTime());
+    }
+
+    /**
+     * Drops buckets that have refilled completely.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeIdle() {
+        long now = System.nanoTime();
+        ips.purgeIdle(now);
+        portfolios.purgeIdle(now);
+        visitors.purgeIdle(now);
+    }
+
+    /**
+     * Logs allowed and dropped request counts since startup every five minutes once the limiter
+     * has seen traffic, so operators can tell which dimension is rejecting requests.
+     */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void logSummary() {
+        if (!properties.isEnabled() || allowedCount.get() == 0 && getDroppedCount() == 0) {
+            return;
+        }
+        logger.info("Tracking rate limit: {} request(s) allowed; dropped {} by IP{}, {} by portfolio, {} by visitor; "
+                        + "{} bucket(s) tracked",
+                allowedCount.get(), ips.dropped.get(), ipLimited ? "" : " (disabled)", portfolios.dropped.get(),
+                visitors.dropped.get(), getTrackedKeyCount());
+    }
+
+    public long getAllowedCount() {
+        return allowedCount.get();
+    }
+
+    public long getDroppedByIpCount() {
+        return ips.dropped.get();
+    }
+
+    public long getDroppedByPortfolioCount() {
+        return portfolios.dropped.get();
+    }
+
+    public long getDroppedByVisitorCount() {
+        return visitors.dropped.get();
+    }
+
+    public long getDroppedCount() {
+        return ips.dropped.get() + portfolios.dropped.get() + visitors.dropped.get();
+    }
+
+    public int getTrackedKeyCount() {
+        return ips.buckets.size() + portfolios.buckets.size() + visitors.buckets.size();
+    }
+
+    /**
+     * Buckets of one dimension. Each bucket stores the instant (System.nanoTime) at which it
+     * will be full again; a request fits if that instant, pushed back by its cost, stays
+     * within one full burst of now.
+     */
+    private static final class Dimension {
+        final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicLong dropped = new AtomicLong();
+        final int capacity;
+        final long intervalNanos;
+        final long burstNanos;
+        final int maxKeys;
+
+        Dimension(int capacity, double refillPerSecond, int maxKeys) {
+            this.capacity = Math.max(1, capacity);
+            this.intervalNanos = Math.max(1L, Math.round(1_000_000_000d / Math.max(refillPerSecond, 1e-6)));
+            this.burstNanos = this.capacity * intervalNanos;
+            this.maxKeys = maxKeys;
+        }
+
+        boolean tryAcquire(String key, int permits, long now) {
+            AtomicLong bucket = buckets.get(key);
+            if (bucket == null) {
+                ensureCapacity(now);
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+
+            // A request larger than the burst costs the whole burst
+            long cost = Math.min(permits, capacity) * intervalNanos;
+            while (true) {
+                long fullAt = bucket.get();
+                long next = Math.max(fullAt, now) + cost;
+                if (next - now > burstNanos) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                if (bucket.compareAndSet(fullAt, next)) {
+                    return true;
+                }
+            }
+        }
+
+        void purgeIdle(long now) {
+            buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+        }
+
+        private void ensureCapacity(long now) {
+            if (buckets.size() < maxKeys) {
+                return;
+            }
+            purgeIdle(now);
+            // Still full of active buckets (e.g. rotating keys) - evict a slice in hash order
+            int toEvict = buckets.size() >= maxKeys ? Math.max(1, maxKeys / EVICTION_DIVISOR) : 0;
+            Iterator<String> iterator = buckets.keySet().iterator();
+            while (toEvict > 0 && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                toEvict--;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.developer.analytics.retention;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Compacts raw analytics events older than the retention age into daily rollups every night at
+ * 03:00, then purges the compacted events and unused visitor keys, on one node only.
+ */
+@Component
+public class AnalyticsRetentionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsRetentionJob.class);
+
+    private static final String LEASE_NAME = "analytics-retention";
+
+    private final AnalyticsRetentionService retentionService;
+    private final SchedulerLeaseService leaseService;
+
+    public AnalyticsRetentionJob(AnalyticsRetentionService retentionService, SchedulerLeaseService leaseService) {
+        this.retentionService = retentionService;
+        this.leaseService = leaseService;
+    }
+
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void compactAndPurge() {
+        if (!retentionService.isEnabled()) {
+            return;
+        }
+
+        Optional<SchedulerLeaseService.Lease> lease = leaseService.tryAcquire(LEASE_NAME);
+        if (lease.isEmpty()) {
+            logger.debug("Skipping analytics retention, another node is the leader");
+            return;
+        }
+
+        logger.info("Starting scheduled analytics retention");
+        try (SchedulerLeaseService.Lease held = lease.get()) {
+            retentionService.compact(held);
+            if (held.isHeld()) {
+                retentionService.purgeCompacted();
+                retentionService.purgeUnusedVisitors();
+            }
+        } catch (Exception e) {
+            logger.error("Error during scheduled analytics retention: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.developer.analytics.retention;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for raw analytics event retention.
+ * Bound from the {@code app.analytics.retention} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.retention")
+public class AnalyticsRetentionProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Raw events older than this many days are compacted into the daily rollup and purged.
+     */
+    private int rawRetentionDays = 90;
+
+    /**
+     * Maximum number of raw rows deleted per purge transaction.
+     */
+    private int purgeChunkSize = 5_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRawRetentionDays() {
+        return rawRetentionDays;
+    }
+
+    public void setRawRetentionDays(int rawRetentionDays) {
+        this.rawRetentionDays = rawRetentionDays;
+    }
+
+    public int getPurgeChunkSize() {
+        return purgeChunkSize;
+    }
+
+    public void setPurgeChunkSize(int purgeChunkSize) {
+        this.purgeChunkSize = purgeChunkSize;
+    }
+}
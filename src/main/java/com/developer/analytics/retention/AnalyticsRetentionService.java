@@ -0,0 +1,270 @@
+package com.developer.analytics.retention;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Compacts raw analytics events older than the retention age into
+ * {@code portfolio_analytics_daily_rollup} and purges them.
+ *
+ * Compaction and purge are decoupled by a watermark:
+ * 1. In one transaction, every day in [old watermark, cutoff) is rolled up and the watermark advances
+ * 2. Raw rows before the watermark are then deleted in small chunks
+ * Readers ignore raw rows before the watermark, so totals never double count even while
+ * the purge is still in progress or is interrupted. Events that arrive late with a timestamp
+ * before the watermark (e.g. a long spool replay) are not counted.
+ *
+ * Visitor dictionary keys not looked up since the day before the watermark are purged as well,
+ * together with their incremental aggregation flags: all their raw events are compacted, and a
+ * visitor that returns later gets a new key and counts as a new visitor, as it does in a full
+ * aggregation.
+ */
+@Service
+public class AnalyticsRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsRetentionService.class);
+
+    // Readers may use a slightly stale watermark; see class comment for why that is safe
+    private static final long WATERMARK_CACHE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private static final String COMPACT_SQL = """
+            WITH per_visitor AS (
+                SELECT
+                    e.portfolio_user_id,
+                    DATE(e.created_at) AS day,
+                    e.visitor_key,
+                    COUNT(*) FILTER (WHERE e.event_type = 'VIEW') AS views,
+                    COUNT(*) FILTER (WHERE e.event_type = 'ENGAGED') AS engaged,
+                    SUM(e.duration_seconds) FILTER (WHERE e.event_type = 'VIEW') AS duration_sum,
+                    COUNT(e.duration_seconds) FILTER (WHERE e.event_type = 'VIEW') AS duration_count
+                FROM portfolio_analytics_event e
+                WHERE e.created_at >= ?
+                    AND e.created_at < ?
+                GROUP BY e.portfolio_user_id, DATE(e.created_at), e.visitor_key
+            )
+            INSERT INTO portfolio_analytics_daily_rollup AS r
+                (portfolio_user_id, day, view_count, engaged_count, unique_visitors, engaged_visitors,
+                 bounce_count, duration_sum, duration_count)
+            SELECT
+                portfolio_user_id,
+                day,
+                SUM(views),
+                SUM(engaged),
+                COUNT(*) FILTER (WHERE views > 0),
+                COUNT(*) FILTER (WHERE engaged > 0),
+                COUNT(*) FILTER (WHERE views > 0 AND engaged = 0),
+                COALESCE(SUM(duration_sum), 0),
+                SUM(duration_count)
+            FROM per_visitor
+            GROUP BY portfolio_user_id, day
+            ON CONFLICT (portfolio_user_id, day) DO UPDATE SET
+                view_count = r.view_count + EXCLUDED.view_count,
+                engaged_count = r.engaged_count + EXCLUDED.engaged_count,
+                unique_visitors = r.unique_visitors + EXCLUDED.unique_visitors,
+                engaged_visitors = r.engaged_visitors + EXCLUDED.engaged_visitors,
+                bounce_count = r.bounce_count + EXCLUDED.bounce_count,
+                duration_sum = r.duration_sum + EXCLUDED.duration_sum,
+                duration_count = r.duration_count + EXCLUDED.duration_count
+            """;
+
+    private static final String SUM_ROLLUP_BEFORE_SQL = """
+            SELECT
+                COALESCE(SUM(r.unique_visitors), 0),
+                COALESCE(SUM(r.engaged_visitors), 0),
+                COALESCE(SUM(r.bounce_count), 0),
+                COALESCE(SUM(r.duration_sum), 0),
+                COALESCE(SUM(r.duration_count), 0)
+            FROM portfolio_analytics_daily_rollup r
+            WHERE r.portfolio_user_id = ?
+                AND r.day < ?
+            """;
+
+    private static final String PURGE_CHUNK_SQL = """
+            DELETE FROM portfolio_analytics_event
+            WHERE (id, created_at) IN (
+                SELECT id, created_at FROM portfolio_analytics_event
+                WHERE created_at < ?
+                LIMIT ?
+            )
+            """;
+
+    // Keys a concurrent lookup is marking as seen are skipped; the cutoff keeps keys looked up
+    // since yesterday, which covers every entry a node may still have cached
+    private static final String PURGE_VISITORS_CHUNK_SQL = """
+            WITH purged AS (
+                SELECT id FROM analytics_visitor
+                WHERE last_seen_on < LEAST(CAST(? AS DATE) - 1, CURRENT_DATE - 1)
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ),
+            flags AS (
+                DELETE FROM portfolio_analytics_visitor_state s
+                USING purged p
+                WHERE s.visitor_key = p.id
+            )
+            DELETE FROM analytics_visitor v
+            USING purged p
+            WHERE v.id = p.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AnalyticsRetentionProperties properties;
+
+    private volatile RetentionWatermark cachedWatermark;
+    private volatile long cachedAtNanos;
+
+    public AnalyticsRetentionService(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            AnalyticsRetentionProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the current compaction watermark, cached for a short time.
+     */
+    public RetentionWatermark getWatermark() {
+        RetentionWatermark watermark = cachedWatermark;
+        if (watermark == null || System.nanoTime() - cachedAtNanos > WATERMARK_CACHE_NANOS) {
+            watermark = loadWatermark();
+            cachedWatermark = watermark;
+            cachedAtNanos = System.nanoTime();
+        }
+        return watermark;
+    }
+
+    /**
+     * Sums compacted history for a portfolio over all days before the given day.
+     */
+    public RollupTotals sumRollupTotalsBefore(UUID portfolioUserId, LocalDate beforeDay) {
+        return jdbcTemplate.queryForObject(SUM_ROLLUP_BEFORE_SQL,
+                (rs, rowNum) -> new RollupTotals(
+                        rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)),
+                portfolioUserId, Date.valueOf(beforeDay));
+    }
+
+    /**
+     * Rolls up every whole day older than the retention age that has not been compacted yet,
+     * and advances the watermark in the same transaction.
+     *
+     * @param lease The retention lease, fenced before anything is written
+     * @return The new watermark
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public RetentionWatermark compact(SchedulerLeaseService.Lease lease) {
+        lease.checkFence(jdbcTemplate);
+
+        // Lock the state row so concurrent compactions (e.g. two replicas) serialize
+        RetentionWatermark current = jdbcTemplate.queryForObject(
+                "SELECT compacted_before_day, compacted_before FROM portfolio_analytics_retention_state WHERE id = 1 FOR UPDATE",
+                (rs, rowNum) -> toWatermark(rs.getDate(1), rs.getTimestamp(2)));
+
+        // Cutoff is a day boundary in the database time zone, matching DATE(created_at)
+        RetentionWatermark target = jdbcTemplate.queryForObject(
+                "SELECT CURRENT_DATE - CAST(? AS INTEGER), (CURRENT_DATE - CAST(? AS INTEGER))::TIMESTAMPTZ",
+                (rs, rowNum) -> toWatermark(rs.getDate(1), rs.getTimestamp(2)),
+                properties.getRawRetentionDays(), properties.getRawRetentionDays());
+
+        if (current.instant() != null && !target.instant().isAfter(current.instant())) {
+            return current;
+        }
+
+        int rollupRows = jdbcTemplate.update(COMPACT_SQL,
+                Timestamp.from(current.rawSince()), Timestamp.from(target.instant()));
+
+        jdbcTemplate.update(
+                "UPDATE portfolio_analytics_retention_state SET compacted_before_day = ?, compacted_before = ?, updated_at = NOW() WHERE id = 1",
+                Date.valueOf(target.day()), Timestamp.from(target.instant()));
+
+        cachedWatermark = target;
+        cachedAtNanos = System.nanoTime();
+        logger.info("Compacted raw analytics events before {} into {} daily rollup row(s)", target.day(), rollupRows);
+        return target;
+    }
+
+    /**
+     * Deletes raw events before the watermark in chunks, each in its own short transaction.
+     *
+     * @return The number of raw rows deleted
+     */
+    public long purgeCompacted() {
+        RetentionWatermark watermark = loadWatermark();
+        if (watermark.instant() == null) {
+            return 0;
+        }
+
+        int chunkSize = Math.max(1, properties.getPurgeChunkSize());
+        Timestamp before = Timestamp.from(watermark.instant());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_CHUNK_SQL, before, chunkSize);
+            total += deleted;
+        } while (deleted == chunkSize);
+
+        if (total > 0) {
+            logger.info("Purged {} compacted raw analytics event(s) before {}", total, watermark.day());
+        }
+        return total;
+    }
+
+    /**
+     * Deletes visitor dictionary keys, and their incremental aggregation flags, not looked up
+     * since the day before the watermark day, in chunks like {@link #purgeCompacted()}. Every
+     * event is stored with a key looked up at most a day earlier, so their raw events are all
+     * before the watermark.
+     *
+     * @return The number of keys deleted
+     */
+    public long purgeUnusedVisitors() {
+        RetentionWatermark watermark = loadWatermark();
+        if (watermark.day() == null) {
+            return 0;
+        }
+
+        int chunkSize = Math.max(1, properties.getPurgeChunkSize());
+        Date before = Date.valueOf(watermark.day());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_VISITORS_CHUNK_SQL, before, chunkSize);
+            total += deleted;
+        } while (deleted == chunkSize);
+
+        if (total > 0) {
+            logger.info("Purged {} visitor key(s) not seen since {}", total, watermark.day());
+        }
+        return total;
+    }
+
+    private RetentionWatermark loadWatermark() {
+        return jdbcTemplate.queryForObject(
+                "SELECT compacted_before_day, compacted_before FROM portfolio_analytics_retention_state WHERE id = 1",
+                (rs, rowNum) -> toWatermark(rs.getDate(1), rs.getTimestamp(2)));
+    }
+
+    private static RetentionWatermark toWatermark(Date day, Timestamp instant) {
+        if (day == null || instant == null) {
+            return RetentionWatermark.NONE;
+        }
+        return new RetentionWatermark(day.toLocalDate(), instant.toInstant());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+}
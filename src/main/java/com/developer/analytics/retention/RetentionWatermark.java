@@ -0,0 +1,28 @@
+package com.developer.analytics.retention;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Boundary between compacted history and raw events.
+ * Days before {@code day} are served from the daily rollup; raw events at or after
+ * {@code instant} are read directly. Both are null until the first compaction.
+ */
+public record RetentionWatermark(LocalDate day, Instant instant) {
+
+    public static final RetentionWatermark NONE = new RetentionWatermark(null, null);
+
+    /**
+     * @return The earliest raw event time readers should consider
+     */
+    public Instant rawSince() {
+        return instant != null ? instant : Instant.EPOCH;
+    }
+
+    /**
+     * @return The first day not covered by the rollup
+     */
+    public LocalDate rollupBefore() {
+        return day != null ? day : LocalDate.EPOCH;
+    }
+}
@@ -0,0 +1,12 @@
+package com.developer.analytics.retention;
+
+/**
+ * Compacted history of one portfolio, summed over the daily rollup rows before a day.
+ */
+public record RollupTotals(
+        long uniqueVisitors,
+        long engagedVisitors,
+        long bounceCount,
+        long durationSum,
+        long durationCount) {
+}
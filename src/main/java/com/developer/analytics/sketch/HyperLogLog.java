@@ -0,0 +1,129 @@
+package com.developer.analytics.sketch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dense HyperLogLog cardinality sketch with 2^12 one-byte registers (4 KiB, ~1.6% standard error).
+ *
+ * Sketches are mergeable: the union of two sketches is the register-wise maximum, so the
+ * distinct count of any set of days is estimated by merging their daily sketches.
+ * Not thread-safe; callers synchronize or confine instances to one thread.
+ */
+public final class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTER_COUNT = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTER_COUNT];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * Restores a sketch from its serialized registers.
+     *
+     * @throws IllegalArgumentException if the array has the wrong length
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != REGISTER_COUNT) {
+            throw new IllegalArgumentException("Invalid HyperLogLog register array");
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    /**
+     * Hashes a visitor identifier to the 64-bit value fed to {@link #addHash(long)}.
+     */
+    public static long hash(String value) {
+        // FNV-1a over UTF-8, then the MurmurHash3 finalizer to spread the bits
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Sentinel bit caps the rank at 64 - PRECISION + 1
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Folds another sketch into this one.
+     */
+    public void merge(HyperLogLog other) {
+        byte[] source = other.registers;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (source[i] > registers[i]) {
+                registers[i] = source[i];
+            }
+        }
+    }
+
+    /**
+     * @return The estimated number of distinct values added
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        // Small-range correction: linear counting is more accurate while registers are sparse
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof HyperLogLog other && Arrays.equals(registers, other.registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registers);
+    }
+}
@@ -0,0 +1,10 @@
+package com.developer.analytics.sketch;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Identifies the sketch of one portfolio for one day.
+ */
+public record SketchKey(UUID portfolioUserId, LocalDate day) {
+}
@@ -0,0 +1,39 @@
+package com.developer.analytics.sketch;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for per-day unique visitor sketches.
+ * Bound from the {@code app.analytics.sketch} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.sketch")
+public class VisitorSketchProperties {
+
+    /**
+     * Whether accepted VIEW events update the sketches.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of days (including today) covered by the dashboard unique visitor count.
+     */
+    private int dashboardWindowDays = 30;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getDashboardWindowDays() {
+        return dashboardWindowDays;
+    }
+
+    public void setDashboardWindowDays(int dashboardWindowDays) {
+        this.dashboardWindowDays = dashboardWindowDays;
+    }
+}
@@ -0,0 +1,197 @@
+package com.developer.analytics.sketch;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Maintains per-portfolio, per-day HyperLogLog sketches of distinct VIEW visitors.
+ *
+ * Ingestion only appends the visitor hash to an in-memory buffer for the (portfolio, day);
+ * buffers are folded into the stored sketches every few seconds. Unique visitor counts for a
+ * date range merge one stored sketch per day plus the unflushed buffers, so a query costs
+ * O(days) with fixed memory no matter how many visitors a portfolio has.
+ *
+ * Days use the server time zone, matching {@code AnalyticsTrendsService}.
+ */
+@Service
+public class VisitorSketchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorSketchService.class);
+
+    private static final ZoneId SERVER_TIMEZONE = ZoneId.systemDefault();
+
+    private final VisitorSketchStore store;
+    private final VisitorSketchProperties properties;
+    private final ConcurrentHashMap<SketchKey, HashBuffer> buffers = new ConcurrentHashMap<>();
+
+    private final AtomicLong flushedKeyCount = new AtomicLong();
+    private final AtomicLong flushFailureCount = new AtomicLong();
+
+    public VisitorSketchService(VisitorSketchStore store, VisitorSketchProperties properties) {
+        this.store = store;
+        this.properties = properties;
+    }
+
+    /**
+     * Records a visitor for the portfolio's sketch of the event's day. Never touches the database.
+     */
+    public void recordVisitor(UUID portfolioUserId, String visitorId, Instant occurredAt) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        SketchKey key = new SketchKey(portfolioUserId, LocalDate.ofInstant(occurredAt, SERVER_TIMEZONE));
+        long hash = HyperLogLog.hash(visitorId);
+        // A buffer closed by a concurrent flush rejects the add; retry with a fresh one
+        while (!buffers.computeIfAbsent(key, k -> new HashBuffer()).add(hash)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Folds buffered visitors into the stored sketches. On failure the drained sketches
+     * are kept in memory and retried on the next flush.
+     */
+    @Scheduled(fixedDelay = 5_000, initialDelay = 5_000)
+    public void flush() {
+        if (buffers.isEmpty()) {
+            return;
+        }
+
+        Map<SketchKey, HyperLogLog> deltas = new HashMap<>();
+        for (SketchKey key : buffers.keySet()) {
+            HashBuffer buffer = buffers.remove(key);
+            if (buffer != null) {
+                deltas.put(key, buffer.close());
+            }
+        }
+
+        try {
+            store.merge(deltas);
+            flushedKeyCount.addAndGet(deltas.size());
+        } catch (Exception e) {
+            flushFailureCount.incrementAndGet();
+            deltas.forEach(this::restore);
+            logger.warn("Failed to flush {} visitor sketch(es), will retry: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Estimates distinct visitors per day for an inclusive range. Days without visitors map to 0.
+     */
+    public Map<LocalDate, Long> estimateDailyUniqueVisitors(UUID portfolioUserId, LocalDate from, LocalDate to) {
+        Map<LocalDate, HyperLogLog> sketches = findDailySketches(portfolioUserId, from, to);
+        Map<LocalDate, Long> estimates = new LinkedHashMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            HyperLogLog sketch = sketches.get(day);
+            estimates.put(day, sketch != null ? sketch.estimate() : 0L);
+        }
+        return estimates;
+    }
+
+    /**
+     * Estimates distinct visitors across an inclusive day range by union-merging the daily sketches.
+     */
+    public long estimateUniqueVisitors(UUID portfolioUserId, LocalDate from, LocalDate to) {
+        HyperLogLog union = new HyperLogLog();
+        for (HyperLogLog sketch : findDailySketches(portfolioUserId, from, to).values()) {
+            union.merge(sketch);
+        }
+        return union.estimate();
+    }
+
+    /**
+     * Estimates distinct visitors over the dashboard window ending today.
+     */
+    public long estimateRecentUniqueVisitors(UUID portfolioUserId) {
+        LocalDate today = LocalDate.now(SERVER_TIMEZONE);
+        int days = Math.max(1, properties.getDashboardWindowDays());
+        return estimateUniqueVisitors(portfolioUserId, today.minusDays(days - 1), today);
+    }
+
+    /**
+     * Loads the daily sketches for an inclusive range, including visitors not flushed yet.
+     * Days without visitors are absent from the map.
+     */
+    public Map<LocalDate, HyperLogLog> findDailySketches(UUID portfolioUserId, LocalDate from, LocalDate to) {
+        Map<LocalDate, HyperLogLog> sketches = store.findDaily(portfolioUserId, from, to);
+        // Include visitors that have not been flushed yet
+        buffers.forEach((key, buffer) -> {
+            if (key.portfolioUserId().equals(portfolioUserId)
+                    && !key.day().isBefore(from) && !key.day().isAfter(to)) {
+                sketches.computeIfAbsent(key.day(), k -> new HyperLogLog()).merge(buffer.snapshot());
+            }
+        });
+        return sketches;
+    }
+
+    private void restore(SketchKey key, HyperLogLog sketch) {
+        while (!buffers.computeIfAbsent(key, k -> new HashBuffer()).addAll(sketch)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    public int getBufferedKeyCount() {
+        return buffers.size();
+    }
+
+    public long getFlushedKeyCount() {
+        return flushedKeyCount.get();
+    }
+
+    public long getFlushFailureCount() {
+        return flushFailureCount.get();
+    }
+
+    /**
+     * Pending sketch for one key. Closed exactly once by the flush that removed it from the map;
+     * writers that still hold a reference see the closed flag and retry with a new buffer.
+     */
+    private static final class HashBuffer {
+        private final HyperLogLog sketch = new HyperLogLog();
+        private boolean closed;
+
+        synchronized boolean add(long hash) {
+            if (closed) {
+                return false;
+            }
+            sketch.addHash(hash);
+            return true;
+        }
+
+        synchronized boolean addAll(HyperLogLog other) {
+            if (closed) {
+                return false;
+            }
+            sketch.merge(other);
+            return true;
+        }
+
+        synchronized HyperLogLog snapshot() {
+            return HyperLogLog.fromBytes(sketch.toBytes());
+        }
+
+        synchronized HyperLogLog close() {
+            closed = true;
+            return sketch;
+        }
+    }
+}
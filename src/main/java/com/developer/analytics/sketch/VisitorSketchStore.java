@@ -0,0 +1,118 @@
+package com.developer.analytics.sketch;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+
+/**
+ * Persists visitor sketches in {@code portfolio_analytics_visitor_sketch}.
+ *
+ * Merging is a locked read-modify-write: missing rows are created empty, every affected row
+ * is locked in key order (so concurrent flushes from several nodes cannot deadlock), merged
+ * in memory and written back. Register-wise maximum is idempotent, so a retried merge never
+ * inflates counts.
+ */
+@Component
+public class VisitorSketchStore {
+
+    private static final Comparator<SketchKey> KEY_ORDER =
+            Comparator.comparing(SketchKey::portfolioUserId).thenComparing(SketchKey::day);
+
+    private static final String INSERT_EMPTY_SQL = """
+            INSERT INTO portfolio_analytics_visitor_sketch (portfolio_user_id, day, registers)
+            VALUES (?, ?, ?)
+            ON CONFLICT (portfolio_user_id, day) DO NOTHING
+            """;
+
+    private static final String LOCK_SQL = """
+            SELECT s.portfolio_user_id, s.day, s.registers
+            FROM portfolio_analytics_visitor_sketch s
+            JOIN unnest(?, ?) AS k(portfolio_user_id, day)
+                ON s.portfolio_user_id = k.portfolio_user_id AND s.day = k.day
+            ORDER BY s.portfolio_user_id, s.day
+            FOR UPDATE OF s
+            """;
+
+    private static final String UPDATE_SQL = """
+            UPDATE portfolio_analytics_visitor_sketch
+            SET registers = ?, updated_at = NOW()
+            WHERE portfolio_user_id = ? AND day = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VisitorSketchStore(@Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Union-merges the given sketches into the stored ones.
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public void merge(Map<SketchKey, HyperLogLog> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<SketchKey> keys = new ArrayList<>(deltas.keySet());
+        keys.sort(KEY_ORDER);
+
+        byte[] empty = new HyperLogLog().toBytes();
+        jdbcTemplate.batchUpdate(INSERT_EMPTY_SQL, keys.stream()
+                .map(key -> new Object[] { key.portfolioUserId(), Date.valueOf(key.day()), empty })
+                .toList());
+
+        UUID[] userIds = keys.stream().map(SketchKey::portfolioUserId).toArray(UUID[]::new);
+        Date[] days = keys.stream().map(key -> Date.valueOf(key.day())).toArray(Date[]::new);
+        Map<SketchKey, HyperLogLog> stored = new HashMap<>();
+        jdbcTemplate.query(
+                LOCK_SQL,
+                ps -> {
+                    Array userIdArray = ps.getConnection().createArrayOf("uuid", userIds);
+                    Array dayArray = ps.getConnection().createArrayOf("date", days);
+                    ps.setArray(1, userIdArray);
+                    ps.setArray(2, dayArray);
+                },
+                rs -> {
+                    stored.put(new SketchKey(rs.getObject(1, UUID.class), rs.getDate(2).toLocalDate()),
+                            HyperLogLog.fromBytes(rs.getBytes(3)));
+                });
+
+        List<Object[]> updates = new ArrayList<>(keys.size());
+        for (SketchKey key : keys) {
+            HyperLogLog merged = stored.getOrDefault(key, new HyperLogLog());
+            merged.merge(deltas.get(key));
+            updates.add(new Object[] { merged.toBytes(), key.portfolioUserId(), Date.valueOf(key.day()) });
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+    }
+
+    /**
+     * Loads the stored daily sketches of a portfolio for an inclusive day range.
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER, readOnly = true)
+    public Map<LocalDate, HyperLogLog> findDaily(UUID portfolioUserId, LocalDate from, LocalDate to) {
+        Map<LocalDate, HyperLogLog> sketches = new TreeMap<>();
+        jdbcTemplate.query(
+                "SELECT day, registers FROM portfolio_analytics_visitor_sketch WHERE portfolio_user_id = ? AND day >= ? AND day <= ?",
+                rs -> {
+                    sketches.put(rs.getDate(1).toLocalDate(), HyperLogLog.fromBytes(rs.getBytes(2)));
+                },
+                portfolioUserId, Date.valueOf(from), Date.valueOf(to));
+        return sketches;
+    }
+}
@@ -0,0 +1,295 @@
+package com.developer.analytics.spool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.developer.analytics.ingestion.PendingAnalyticsEvent;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only local spool for analytics events that could not be written to the database.
+ *
+ * Events are appended to the active segment file through a {@link FileChannel} and forced to
+ * disk once per append call. Segments are rotated by size; sealed segments are replayed and
+ * deleted by {@link AnalyticsSpoolReplayer}.
+ *
+ * The spool also acts as a simple circuit breaker: after a database write failure, writers
+ * are told to bypass the database for a back-off period so request threads do not keep
+ * waiting on connection timeouts. Only connectivity failures count (see
+ * {@link #isDatabaseUnavailable}); events rejected for their data are never spooled, since
+ * replaying them would fail the same way.
+ */
+@Component
+public class AnalyticsEventSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsEventSpool.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String QUARANTINE_SUFFIX = ".quarantine";
+
+    private final AnalyticsSpoolProperties properties;
+    private final Path directory;
+    private final Object appendLock = new Object();
+
+    private FileChannel activeChannel;
+    private Path activeSegment;
+    private long nextSegmentSequence;
+
+    private final AtomicLong spoolBytes = new AtomicLong();
+    private final AtomicLong spooledCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong quarantinedSegmentCount = new AtomicLong();
+
+    // Database writes are skipped until this wall-clock time after a failure
+    private volatile long bypassDatabaseUntil;
+
+    public AnalyticsEventSpool(AnalyticsSpoolProperties properties) throws IOException {
+        this.properties = properties;
+        if (properties.isEnabled() && (properties.getDirectory() == null || properties.getDirectory().isBlank())) {
+            throw new IllegalStateException(
+                    "app.analytics.spool.directory must be set to local, persistent storage when the spool is enabled");
+        }
+        this.directory = properties.isEnabled() ? Paths.get(properties.getDirectory()) : null;
+        if (properties.isEnabled()) {
+            Files.createDirectories(directory);
+            for (Path segment : listSegments()) {
+                spoolBytes.addAndGet(Files.size(segment));
+                nextSegmentSequence = Math.max(nextSegmentSequence, sequenceOf(segment) + 1);
+            }
+            if (spoolBytes.get() > 0) {
+                logger.info("Found {} byte(s) of spooled analytics events awaiting replay in {}",
+                        spoolBytes.get(), directory);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return true if writers should attempt the database, false while backing off after a failure
+     */
+    public boolean isDatabaseAvailable() {
+        return System.currentTimeMillis() >= bypassDatabaseUntil;
+    }
+
+    /**
+     * Tells connectivity failures, which are worth spooling and retrying, apart from errors
+     * caused by the data or the statement, which would fail the same way on every attempt.
+     *
+     * @param failure The exception thrown by a database write
+     * @return true if the database could not be reached or the failure is transient
+     */
+    public static boolean isDatabaseUnavailable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            // CannotGetJdbcConnectionException is a DataAccessResourceFailureException
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void markDatabaseFailure() {
+        bypassDatabaseUntil = System.currentTimeMillis() + properties.getFailureBackoffMillis();
+    }
+
+    public void markDatabaseRecovered() {
+        bypassDatabaseUntil = 0;
+    }
+
+    /**
+     * Durably appends events to the spool.
+     *
+     * @param events The events to spool
+     * @return true if the events were written, false if the spool is disabled, full or failing
+     */
+    public boolean append(List<PendingAnalyticsEvent> events) {
+        if (!properties.isEnabled() || events.isEmpty()) {
+            return false;
+        }
+
+        List<byte[]> records = new ArrayList<>(events.size());
+        int totalBytes = 0;
+        for (PendingAnalyticsEvent event : events) {
+            byte[] record = SpoolRecordCodec.encode(event);
+            records.add(record);
+            totalBytes += record.length;
+        }
+
+        if (spoolBytes.get() + totalBytes > properties.getMaxTotalBytes()) {
+            countDropped(events.size(), "spool is full");
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(totalBytes);
+        records.forEach(buffer::put);
+        buffer.flip();
+
+        synchronized (appendLock) {
+            try {
+                FileChannel channel = activeChannel();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                spoolBytes.addAndGet(totalBytes);
+                spooledCount.addAndGet(events.size());
+                if (channel.size() >= properties.getSegmentMaxBytes()) {
+                    sealActiveSegmentLocked();
+                }
+                return true;
+            } catch (IOException e) {
+                logger.error("Failed to append {} analytics event(s) to spool: {}", events.size(), e.getMessage(), e);
+                countDropped(events.size(), "spool write failed");
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Seals the active segment (if it has data) and returns all sealed segments, oldest first.
+     */
+    List<Path> sealAndListSegments() throws IOException {
+        synchronized (appendLock) {
+            sealActiveSegmentLocked();
+            return listSegments();
+        }
+    }
+
+    /**
+     * Reads every intact record from a sealed segment. Stops at the first torn or corrupt record.
+     */
+    List<PendingAnalyticsEvent> readSegment(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        List<PendingAnalyticsEvent> events = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            PendingAnalyticsEvent event = SpoolRecordCodec.decode(buffer);
+            if (event == null) {
+                logger.warn("Spool segment {} has a corrupt or truncated record at offset {}, skipping the remainder",
+                        segment.getFileName(), buffer.position());
+                break;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    void deleteSegment(Path segment) throws IOException {
+        long size = Files.size(segment);
+        Files.deleteIfExists(segment);
+        spoolBytes.addAndGet(-size);
+    }
+
+    /**
+     * Moves a segment that cannot be replayed aside so it stops blocking newer segments.
+     * The file is kept next to the spool for inspection and no longer counts toward its size.
+     *
+     * @return The quarantined file
+     */
+    Path quarantineSegment(Path segment) throws IOException {
+        long size = Files.size(segment);
+        String name = segment.getFileName().toString();
+        Path target = segment.resolveSibling(
+                name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + QUARANTINE_SUFFIX);
+        Files.move(segment, target, StandardCopyOption.REPLACE_EXISTING);
+        spoolBytes.addAndGet(-size);
+        quarantinedSegmentCount.incrementAndGet();
+        return target;
+    }
+
+    private FileChannel activeChannel() throws IOException {
+        if (activeChannel == null) {
+            activeSegment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentSequence++, SEGMENT_SUFFIX));
+            activeChannel = FileChannel.open(activeSegment,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return activeChannel;
+    }
+
+    private void sealActiveSegmentLocked() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.force(true);
+            activeChannel.close();
+            activeChannel = null;
+            activeSegment = null;
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                if (!segment.equals(activeSegment)) {
+                    segments.add(segment);
+                }
+            }
+        }
+        // Zero-padded sequence numbers make lexical order chronological
+        segments.sort(null);
+        return segments;
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void countDropped(int count, String reason) {
+        long dropped = droppedCount.addAndGet(count);
+        logger.warn("Dropped {} analytics event(s): {} ({} dropped so far)", count, reason, dropped);
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (appendLock) {
+            try {
+                sealActiveSegmentLocked();
+            } catch (IOException e) {
+                logger.warn("Failed to close analytics spool segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    public long getSpoolBytes() {
+        return spoolBytes.get();
+    }
+
+    public long getSpooledCount() {
+        return spooledCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getQuarantinedSegmentCount() {
+        return quarantinedSegmentCount.get();
+    }
+}
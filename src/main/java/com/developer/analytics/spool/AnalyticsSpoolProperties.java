@@ -0,0 +1,76 @@
+package com.developer.analytics.spool;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the local on-disk spool used when analytics events cannot be written
+ * to the database promptly. Bound from the {@code app.analytics.spool} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.spool")
+public class AnalyticsSpoolProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Directory holding spool segment files. Must be on local, persistent storage, so there is
+     * no default: it has to be set whenever the spool is enabled.
+     */
+    private String directory;
+
+    /**
+     * Size at which the active segment is sealed and a new one is started.
+     */
+    private long segmentMaxBytes = 16L * 1024 * 1024;
+
+    /**
+     * Hard cap on total spool size; events beyond it are dropped.
+     */
+    private long maxTotalBytes = 512L * 1024 * 1024;
+
+    /**
+     * After a database write failure, events bypass the database for this long.
+     */
+    private long failureBackoffMillis = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public long getSegmentMaxBytes() {
+        return segmentMaxBytes;
+    }
+
+    public void setSegmentMaxBytes(long segmentMaxBytes) {
+        this.segmentMaxBytes = segmentMaxBytes;
+    }
+
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    public void setMaxTotalBytes(long maxTotalBytes) {
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    public long getFailureBackoffMillis() {
+        return failureBackoffMillis;
+    }
+
+    public void setFailureBackoffMillis(long failureBackoffMillis) {
+        this.failureBackoffMillis = failureBackoffMillis;
+    }
+}
@@ -0,0 +1,140 @@
+package com.developer.analytics.spool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.analytics.ingestion.AnalyticsEventBatchWriter;
+import com.developer.analytics.ingestion.PendingAnalyticsEvent;
+
+/**
+ * Replays spooled analytics events into {@code portfolio_analytics_event} once the database
+ * accepts writes again. Segments are replayed oldest first, each as a single write (bulk loaded
+ * with COPY once it reaches {@code copy-min-rows}), and deleted only after it has been written.
+ * Inserts are idempotent on the event id, so a crash between the write and the delete only
+ * causes the segment's records to be skipped on the next attempt.
+ *
+ * Replay pauses (and trips the spool's circuit breaker) only when the database is unreachable.
+ * A segment rejected for its data, e.g. a constraint violation, is quarantined instead of
+ * being retried forever, and replay moves on to the next one.
+ */
+@Component
+public class AnalyticsSpoolReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsSpoolReplayer.class);
+
+    private final AnalyticsEventSpool spool;
+    private final AnalyticsEventBatchWriter batchWriter;
+
+    private final AtomicLong replayedCount = new AtomicLong();
+    // Age of the oldest event still waiting in the spool, as of the last replay attempt
+    private volatile long replayLagMillis;
+
+    public AnalyticsSpoolReplayer(
+            AnalyticsEventSpool spool,
+            AnalyticsEventBatchWriter batchWriter) {
+        this.spool = spool;
+        this.batchWriter = batchWriter;
+    }
+
+    @Scheduled(fixedDelay = 5_000, initialDelay = 5_000)
+    public void replay() {
+        if (!spool.isEnabled() || spool.getSpoolBytes() == 0 || !spool.isDatabaseAvailable()) {
+            return;
+        }
+
+        List<Path> segments;
+        try {
+            segments = spool.sealAndListSegments();
+        } catch (IOException e) {
+            logger.warn("Analytics spool replay paused, cannot list segments: {}", e.getMessage());
+            return;
+        }
+
+        for (Path segment : segments) {
+            try {
+                replaySegment(segment);
+            } catch (RuntimeException e) {
+                if (AnalyticsEventSpool.isDatabaseUnavailable(e)) {
+                    spool.markDatabaseFailure();
+                    logger.warn("Analytics spool replay paused, database still unavailable: {}", e.getMessage());
+                    return;
+                }
+                if (!(e instanceof NonTransientDataAccessException) || !quarantine(segment, e)) {
+                    logger.warn("Analytics spool replay paused: {}", e.getMessage(), e);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.warn("Analytics spool replay paused, cannot read {}: {}", segment.getFileName(), e.getMessage());
+                return;
+            }
+        }
+        replayLagMillis = 0;
+        spool.markDatabaseRecovered();
+    }
+
+    private void replaySegment(Path segment) throws IOException {
+        List<PendingAnalyticsEvent> events = spool.readSegment(segment);
+        if (!events.isEmpty()) {
+            replayLagMillis = Duration.between(events.get(0).createdAt(), Instant.now()).toMillis();
+        }
+
+        // Marks the portfolios of the rows actually inserted dirty, long after the events were accepted
+        batchWriter.writeBatch(events);
+
+        spool.deleteSegment(segment);
+        replayedCount.addAndGet(events.size());
+        logger.info("Replayed {} spooled analytics event(s) from {}", events.size(), segment.getFileName());
+    }
+
+    /**
+     * Sets aside a segment the database rejected for its data. The segment is written in one
+     * transaction, so none of it was stored; re-importing the file later is safe since inserts skip known ids.
+     *
+     * @return true if the segment was moved out of the replay queue
+     */
+    private boolean quarantine(Path segment, RuntimeException failure) {
+        try {
+            Path target = spool.quarantineSegment(segment);
+            logger.error("Quarantined spooled analytics segment {} as {}, rejected by the database: {}",
+                    segment.getFileName(), target.getFileName(), failure.getMessage());
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to quarantine spooled analytics segment {}: {}", segment.getFileName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Logs the spool depth, replay lag and counters every five minutes once the spool has been
+     * used, so operators can follow an outage without a metrics endpoint.
+     */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void logSummary() {
+        if (!spool.isEnabled() || (spool.getSpoolBytes() == 0 && spool.getSpooledCount() == 0
+                && spool.getDroppedCount() == 0)) {
+            return;
+        }
+        logger.info("Analytics spool: {} byte(s) awaiting replay, replay lag {} ms; since startup {} event(s) spooled, "
+                        + "{} replayed, {} dropped, {} segment(s) quarantined",
+                spool.getSpoolBytes(), replayLagMillis, spool.getSpooledCount(), replayedCount.get(),
+                spool.getDroppedCount(), spool.getQuarantinedSegmentCount());
+    }
+
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    public long getReplayLagMillis() {
+        return replayLagMillis;
+    }
+}
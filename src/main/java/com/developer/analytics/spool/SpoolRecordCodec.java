@@ -0,0 +1,130 @@
+package com.developer.analytics.spool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import com.developer.analytics.AnalyticsEventType;
+import com.developer.analytics.ingestion.PendingAnalyticsEvent;
+
+/**
+ * Binary record format for spool segments.
+ *
+ * Each record is framed as {@code [int payloadLength][int crc32(payload)][payload]}.
+ * The payload starts with a format version byte so the layout can evolve.
+ * A record whose length runs past the end of the segment or whose checksum does not
+ * match marks a torn or corrupt tail.
+ */
+final class SpoolRecordCodec {
+
+    static final int HEADER_BYTES = 8;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    // Guards against reading garbage lengths from a corrupt header
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+    private SpoolRecordCodec() {
+    }
+
+    static byte[] encode(PendingAnalyticsEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeUuid(out, event.id());
+            writeUuid(out, event.portfolioUserId());
+            out.writeUTF(event.visitorId());
+            out.writeUTF(event.eventType().name());
+            writeNullableInt(out, event.durationSeconds());
+            writeNullableInt(out, event.scrollDepth());
+            out.writeBoolean(event.userAgent() != null);
+            if (event.userAgent() != null) {
+                out.writeUTF(event.userAgent());
+            }
+            out.writeLong(event.createdAt().getEpochSecond());
+            out.writeInt(event.createdAt().getNano());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer framed = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        framed.putInt(payload.length);
+        framed.putInt((int) crc.getValue());
+        framed.put(payload);
+        return framed.array();
+    }
+
+    /**
+     * Decodes the record at the buffer's position and advances past it.
+     *
+     * @return The decoded event, or null if the remaining bytes are a torn or corrupt record
+     */
+    static PendingAnalyticsEvent decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (length <= 0 || length > MAX_PAYLOAD_BYTES || length > buffer.remaining()) {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                return null;
+            }
+            UUID id = readUuid(in);
+            UUID portfolioUserId = readUuid(in);
+            String visitorId = in.readUTF();
+            AnalyticsEventType eventType = AnalyticsEventType.valueOf(in.readUTF());
+            Integer durationSeconds = readNullableInt(in);
+            Integer scrollDepth = readNullableInt(in);
+            String userAgent = in.readBoolean() ? in.readUTF() : null;
+            Instant createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            return new PendingAnalyticsEvent(id, portfolioUserId, visitorId, eventType,
+                    durationSeconds, scrollDepth, userAgent, createdAt);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeNullableInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.developer.analytics.summary;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for near-real-time summary counters.
+ * Bound from the {@code app.analytics.live-counters} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.live-counters")
+public class LiveCountersProperties {
+
+    /**
+     * Whether stored events update the summary between aggregation runs.
+     */
+    private boolean enabled = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
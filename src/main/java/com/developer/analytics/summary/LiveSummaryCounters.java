@@ -0,0 +1,179 @@
+package com.developer.analytics.summary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.analytics.AnalyticsEventType;
+import com.developer.config.AnalyticsDataSourceConfig;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Near-real-time deltas for {@code portfolio_analytics_summary}.
+ *
+ * Every stored event bumps striped per-portfolio counters; every few seconds the deltas are
+ * added to the summary rows with one batched upsert. Dashboard reads add the still-unflushed
+ * deltas on top, so numbers move within seconds instead of once per aggregation run.
+ *
+ * Deltas are an estimate between aggregation runs: a stored VIEW counts as a view and a
+ * bounce, and a stored ENGAGED turns one bounce into an engaged view. A returning visitor
+ * therefore counts again, which the next aggregation (the source of truth) corrects when it
+ * rewrites the row. Average duration is only ever set by aggregation.
+ */
+@Component
+public class LiveSummaryCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveSummaryCounters.class);
+
+    private static final String UPSERT_DELTAS_SQL = """
+            INSERT INTO portfolio_analytics_summary AS s
+                (portfolio_user_id, total_views, engaged_views, bounce_count, avg_duration_seconds, last_calculated_at)
+            VALUES (?, GREATEST(0, ?), GREATEST(0, ?), GREATEST(0, ?), 0, NOW())
+            ON CONFLICT (portfolio_user_id) DO UPDATE SET
+                total_views = GREATEST(0, s.total_views + ?),
+                engaged_views = GREATEST(0, s.engaged_views + ?),
+                bounce_count = GREATEST(0, s.bounce_count + ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LiveCountersProperties properties;
+    private final ConcurrentHashMap<UUID, Deltas> deltas = new ConcurrentHashMap<>();
+
+    private final AtomicLong flushedRowCount = new AtomicLong();
+    private final AtomicLong flushFailureCount = new AtomicLong();
+
+    public LiveSummaryCounters(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            LiveCountersProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Records an event that was just inserted. Never touches the database.
+     */
+    public void record(UUID portfolioUserId, AnalyticsEventType eventType) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Deltas counters = deltas.computeIfAbsent(portfolioUserId, k -> new Deltas());
+        if (eventType == AnalyticsEventType.VIEW) {
+            counters.views.increment();
+            counters.bounces.increment();
+        } else if (eventType == AnalyticsEventType.ENGAGED) {
+            counters.engaged.increment();
+            counters.bounces.decrement();
+        }
+        counters.touched = true;
+    }
+
+    /**
+     * Adds the pending deltas to the summary rows in one batch. On failure the drained
+     * amounts are put back and retried on the next flush.
+     */
+    @Scheduled(fixedDelay = 5_000, initialDelay = 5_000)
+    public void flush() {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        List<Map.Entry<UUID, long[]>> drained = new ArrayList<>();
+        for (Map.Entry<UUID, Deltas> entry : deltas.entrySet()) {
+            Deltas counters = entry.getValue();
+            if (!counters.touched) {
+                // Idle for a full flush interval - drop the entry. A racing increment could
+                // be lost here; the next aggregation corrects the summary regardless.
+                deltas.remove(entry.getKey(), counters);
+                continue;
+            }
+            counters.touched = false;
+
+            long views = counters.views.sumThenReset();
+            long engaged = counters.engaged.sumThenReset();
+            long bounces = counters.bounces.sumThenReset();
+            if (views == 0 && engaged == 0 && bounces == 0) {
+                continue;
+            }
+            drained.add(Map.entry(entry.getKey(), new long[] { views, engaged, bounces }));
+            rows.add(new Object[] { entry.getKey(), views, engaged, bounces, views, engaged, bounces });
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_DELTAS_SQL, rows);
+            flushedRowCount.addAndGet(rows.size());
+        } catch (Exception e) {
+            flushFailureCount.incrementAndGet();
+            for (Map.Entry<UUID, long[]> entry : drained) {
+                Deltas counters = deltas.computeIfAbsent(entry.getKey(), k -> new Deltas());
+                counters.views.add(entry.getValue()[0]);
+                counters.engaged.add(entry.getValue()[1]);
+                counters.bounces.add(entry.getValue()[2]);
+                counters.touched = true;
+            }
+            logger.warn("Failed to flush live analytics counters for {} portfolio(s), will retry: {}",
+                    rows.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Returns the persisted summary with the portfolio's unflushed deltas applied.
+     * The given entity is not modified.
+     */
+    public PortfolioAnalyticsSummary withPendingDeltas(PortfolioAnalyticsSummary summary) {
+        Deltas counters = deltas.get(summary.getPortfolioUserId());
+        if (counters == null) {
+            return summary;
+        }
+
+        PortfolioAnalyticsSummary live = new PortfolioAnalyticsSummary();
+        live.setPortfolioUserId(summary.getPortfolioUserId());
+        live.setTotalViews((int) Math.max(0, summary.getTotalViews() + counters.views.sum()));
+        live.setEngagedViews((int) Math.max(0, summary.getEngagedViews() + counters.engaged.sum()));
+        live.setBounceCount((int) Math.max(0, summary.getBounceCount() + counters.bounces.sum()));
+        live.setAvgDurationSeconds(summary.getAvgDurationSeconds());
+        live.setLastCalculatedAt(summary.getLastCalculatedAt());
+        return live;
+    }
+
+    public int getTrackedPortfolioCount() {
+        return deltas.size();
+    }
+
+    public long getFlushedRowCount() {
+        return flushedRowCount.get();
+    }
+
+    public long getFlushFailureCount() {
+        return flushFailureCount.get();
+    }
+
+    private static final class Deltas {
+        final LongAdder views = new LongAdder();
+        final LongAdder engaged = new LongAdder();
+        final LongAdder bounces = new LongAdder();
+        // Set on every update, cleared by each flush; an entry still clear at the next flush is idle
+        volatile boolean touched;
+    }
+}
@@ -13,5 +13,6 @@ public class DashboardAnalyticsResponse {
     private Integer engagementRate; // Percentage (0-100)
     private Integer bounceRate; // Percentage (0-100)
     private Integer avgTimeOnPage; // Average duration in seconds
+    private Long uniqueVisitors; // Estimated distinct visitors over the recent window
 }
 
@@ -1,17 +1,19 @@
 package com.developer.analytics.trends;
 
+import java.util.UUID;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.developer.analytics.trends.dto.AnalyticsTrendsResponse;
-import com.developer.entity.User;
 import com.developer.exception.ResourceNotFoundException;
 import com.developer.exception.UnauthorizedException;
-import com.developer.repository.UserRepository;
+import com.developer.service.UserIdCache;
 
 /**
  * Controller for analytics trends endpoint.
@@ -22,38 +24,43 @@ import com.developer.repository.UserRepository;
 public class AnalyticsTrendsController {
 
     private final AnalyticsTrendsService trendsService;
-    private final UserRepository userRepository;
+    private final UserIdCache userIdCache;
 
     public AnalyticsTrendsController(
             AnalyticsTrendsService trendsService,
-            UserRepository userRepository) {
+            UserIdCache userIdCache) {
         this.trendsService = trendsService;
-        this.userRepository = userRepository;
+        this.userIdCache = userIdCache;
     }
 
     /**
      * Gets analytics trends for the current authenticated user's portfolio.
-     * Returns trends for the last 7 days (including today).
+     * Returns trends for the last {@code days} days (including today), 7 by default.
      * 
+     * @param days Range in days: up to 31 for hourly, up to 365 otherwise
+     * @param granularity Bucket size: hourly, daily (default), weekly or monthly
      * @return Analytics trends response with views, engagement rate, and bounce rate
      */
     @GetMapping("/trends")
-    public ResponseEntity<AnalyticsTrendsResponse> getTrends() {
-        User currentUser = getCurrentUser();
-        AnalyticsTrendsResponse response = trendsService.computeTrends(currentUser.getId());
+    public ResponseEntity<AnalyticsTrendsResponse> getTrends(
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = "daily") String granularity) {
+        UUID currentUserId = getCurrentUserId();
+        AnalyticsTrendsResponse response = trendsService.computeTrends(
+                currentUserId, days, TrendGranularity.parse(granularity));
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Gets the current authenticated user.
+     * Gets the current authenticated user's id, without loading the user entity.
      */
-    private User getCurrentUser() {
+    private UUID getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new UnauthorizedException("User not authenticated");
         }
         String username = authentication.getName();
-        return userRepository.findByUsername(username)
+        return userIdCache.findIdByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 }
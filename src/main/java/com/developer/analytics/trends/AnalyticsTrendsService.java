@@ -1,153 +1,335 @@
 package com.developer.analytics.trends;
 
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.developer.analytics.AnalyticsEventType;
-import com.developer.analytics.PortfolioAnalyticsEventRepository;
+import com.developer.analytics.sketch.HyperLogLog;
+import com.developer.analytics.sketch.VisitorSketchService;
 import com.developer.analytics.trends.dto.AnalyticsTrendPoint;
 import com.developer.analytics.trends.dto.AnalyticsTrendsResponse;
+import com.developer.config.AnalyticsDataSourceConfig;
 
 /**
  * Service responsible for computing analytics trends over time.
- * 
- * Default time window: Last 7 days (including today)
+ *
+ * Default time window: Last 7 days (including today), daily buckets
+ * Ranges of up to 365 days are supported with hourly (up to 31 days), daily, weekly or monthly buckets.
+ * Hourly buckets of compacted days are empty, since only daily totals survive compaction.
+ * Counts are read from the pre-aggregated rollups (hourly buckets from {@code portfolio_analytics_hourly},
+ * coarser ones from {@code portfolio_analytics_daily}) as one index range read grouped in the database,
+ * so the cost depends on the range, not on how many raw events it contains.
+ * Engagement and bounce rates are shares of the bucket's viewers: per day (or hour), visitors with
+ * a VIEW are split into those who also engaged and those who bounced, so the rates add up to 100%.
+ * Closed days are read from the visitor rollups maintained by {@link VisitorTrendRollup} (or the
+ * daily rollup once compacted); only days not rolled up yet, normally today, are read from raw events.
+ * Unique visitors come from the per-day HyperLogLog sketches, merged per bucket.
  */
 @Service
 public class AnalyticsTrendsService {
 
-    private static final int DEFAULT_DAYS = 7;
+    public static final int DEFAULT_DAYS = 7;
     private static final ZoneId SERVER_TIMEZONE = ZoneId.systemDefault();
 
-    private final PortfolioAnalyticsEventRepository eventRepository;
+    // Compacted hours are skipped: compacted days only have daily totals, which V17 once
+    // attributed to their first hour
+    private static final String HOURLY_COUNTS_SQL = """
+            SELECT h.hour, h.event_type, h.event_count
+            FROM portfolio_analytics_hourly h
+            WHERE h.portfolio_user_id = ?
+                AND h.hour >= GREATEST(CAST(? AS TIMESTAMPTZ),
+                    COALESCE((SELECT compacted_before FROM portfolio_analytics_retention_state WHERE id = 1),
+                        '-infinity'::TIMESTAMPTZ))
+                AND h.hour < ?
+            """;
 
-    public AnalyticsTrendsService(PortfolioAnalyticsEventRepository eventRepository) {
-        this.eventRepository = eventRepository;
+    private static final String DAILY_BUCKET_COUNTS_SQL = """
+            SELECT CAST(date_trunc(?, d.day) AS DATE) AS bucket, d.event_type, SUM(d.event_count)
+            FROM portfolio_analytics_daily d
+            WHERE d.portfolio_user_id = ?
+                AND d.day >= ?
+                AND d.day < ?
+            GROUP BY 1, 2
+            """;
+
+    private static final String VISITOR_STATE_CTE = """
+            WITH state AS (
+                SELECT
+                    COALESCE((SELECT compacted_before FROM portfolio_analytics_retention_state WHERE id = 1),
+                        '-infinity'::TIMESTAMPTZ) AS raw_since,
+                    COALESCE((SELECT compacted_before_day FROM portfolio_analytics_retention_state WHERE id = 1),
+                        '-infinity'::DATE) AS rollup_before,
+                    COALESCE((SELECT rolled_up_before FROM portfolio_analytics_visitor_rollup_state WHERE id = 1),
+                        '-infinity'::DATE) AS visitors_before
+            ),
+            """;
+
+    /**
+     * Visitor-level totals per day, summed per bucket: viewers, those of them who engaged and
+     * those who bounced, so both rates are shares of the same viewers. Rolled-up days come from
+     * the visitor rollup (or the daily rollup once compacted); only days not rolled up yet are
+     * grouped from raw events.
+     */
+    static final String DAILY_VISITOR_TOTALS_SQL = VISITOR_STATE_CTE + """
+            tail AS (
+                SELECT
+                    DATE(e.created_at) AS day,
+                    e.visitor_key,
+                    bool_or(e.event_type = 'VIEW') AS viewed,
+                    bool_or(e.event_type = 'ENGAGED') AS engaged
+                FROM portfolio_analytics_event e, state s
+                WHERE e.portfolio_user_id = ?
+                    AND e.created_at >= GREATEST(CAST(? AS DATE)::TIMESTAMPTZ, s.visitors_before::TIMESTAMPTZ, s.raw_since)
+                    AND e.created_at < CAST(? AS DATE)::TIMESTAMPTZ
+                    AND e.event_type IN ('VIEW', 'ENGAGED')
+                GROUP BY 1, 2
+            ),
+            days AS (
+                SELECT
+                    day,
+                    COUNT(*) FILTER (WHERE viewed) AS viewers,
+                    COUNT(*) FILTER (WHERE viewed AND engaged) AS engaged,
+                    COUNT(*) FILTER (WHERE viewed AND NOT engaged) AS bounced
+                FROM tail
+                GROUP BY day
+                UNION ALL
+                SELECT d.day, d.viewers, d.engaged_visitors, d.bounced_visitors
+                FROM portfolio_analytics_daily_visitors d, state s
+                WHERE d.portfolio_user_id = ?
+                    AND d.day >= GREATEST(CAST(? AS DATE), s.rollup_before)
+                    AND d.day < LEAST(CAST(? AS DATE), s.visitors_before)
+                UNION ALL
+                -- Compacted days: viewers who did not bounce are the ones who engaged
+                SELECT r.day, r.unique_visitors, r.unique_visitors - r.bounce_count, r.bounce_count
+                FROM portfolio_analytics_daily_rollup r, state s
+                WHERE r.portfolio_user_id = ?
+                    AND r.day >= CAST(? AS DATE)
+                    AND r.day < LEAST(CAST(? AS DATE), s.rollup_before)
+            )
+            SELECT CAST(date_trunc(?, day) AS DATE), SUM(viewers), SUM(engaged), SUM(bounced)
+            FROM days
+            GROUP BY 1
+            """;
+
+    /**
+     * Hourly counterpart of {@link #DAILY_VISITOR_TOTALS_SQL}. Compacted hours are skipped, like
+     * their counts, so an hourly trend shows no data for them rather than partial rates.
+     */
+    private static final String HOURLY_VISITOR_TOTALS_SQL = VISITOR_STATE_CTE + """
+            tail AS (
+                SELECT
+                    date_trunc('hour', e.created_at) AS hour,
+                    e.visitor_key,
+                    bool_or(e.event_type = 'VIEW') AS viewed,
+                    bool_or(e.event_type = 'ENGAGED') AS engaged
+                FROM portfolio_analytics_event e, state s
+                WHERE e.portfolio_user_id = ?
+                    AND e.created_at >= GREATEST(CAST(? AS TIMESTAMPTZ), s.visitors_before::TIMESTAMPTZ, s.raw_since)
+                    AND e.created_at < CAST(? AS TIMESTAMPTZ)
+                    AND e.event_type IN ('VIEW', 'ENGAGED')
+                GROUP BY 1, 2
+            )
+            SELECT
+                hour,
+                COUNT(*) FILTER (WHERE viewed),
+                COUNT(*) FILTER (WHERE viewed AND engaged),
+                COUNT(*) FILTER (WHERE viewed AND NOT engaged)
+            FROM tail
+            GROUP BY hour
+            UNION ALL
+            SELECT h.hour, h.viewers, h.engaged_visitors, h.bounced_visitors
+            FROM portfolio_analytics_hourly_visitors h, state s
+            WHERE h.portfolio_user_id = ?
+                AND h.hour >= GREATEST(CAST(? AS TIMESTAMPTZ), s.raw_since)
+                AND h.hour < LEAST(CAST(? AS TIMESTAMPTZ), s.visitors_before::TIMESTAMPTZ)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VisitorSketchService visitorSketchService;
+
+    public AnalyticsTrendsService(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            VisitorSketchService visitorSketchService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.visitorSketchService = visitorSketchService;
     }
 
     /**
      * Computes analytics trends for a user over the last 7 days.
-     * 
+     *
      * @param userId The UUID of the portfolio owner
      * @return AnalyticsTrendsResponse with views, engagement rate, and bounce rate trends
      */
-    @Transactional(readOnly = true)
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER, readOnly = true)
     public AnalyticsTrendsResponse computeTrends(UUID userId) {
-        // Calculate date range (last 7 days including today)
+        return computeTrends(userId, DEFAULT_DAYS, TrendGranularity.DAILY);
+    }
+
+    /**
+     * Computes analytics trends for a user over the last {@code days} days (including today).
+     * The first bucket is extended back to its natural start (e.g. the Monday of the first week).
+     *
+     * @param userId The UUID of the portfolio owner
+     * @param days Number of days to cover, 1 to the granularity's maximum
+     * @param granularity Bucket size
+     * @return AnalyticsTrendsResponse with one point per bucket, oldest first
+     * @throws IllegalArgumentException if the range is out of bounds for the granularity
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER, readOnly = true)
+    public AnalyticsTrendsResponse computeTrends(UUID userId, int days, TrendGranularity granularity) {
+        if (days < 1 || days > granularity.getMaxDays()) {
+            throw new IllegalArgumentException("Range must be between 1 and " + granularity.getMaxDays()
+                    + " days for " + granularity.name().toLowerCase() + " trends");
+        }
+
+        // Calculate date range (last N days including today), aligned to whole buckets
         LocalDate today = LocalDate.now(SERVER_TIMEZONE);
-        LocalDate startDate = today.minusDays(DEFAULT_DAYS - 1); // Include today, so minus 6 days
-        
-        Instant startInstant = startDate.atStartOfDay(SERVER_TIMEZONE).toInstant();
-        Instant endInstant = today.plusDays(1).atStartOfDay(SERVER_TIMEZONE).toInstant();
-
-        // Fetch events grouped by date and event type
-        List<DailyEventCountProjection> rawResults = eventRepository.findDailyEventCountsByUserAndDateRange(
-                userId, startInstant, endInstant);
-
-        // Process results into a map: date -> eventType -> count
-        Map<LocalDate, Map<AnalyticsEventType, Long>> dailyCounts = new HashMap<>();
-        for (DailyEventCountProjection row : rawResults) {
-            LocalDate date = row.getDate();
-            AnalyticsEventType eventType = AnalyticsEventType.valueOf(row.getEventType());
-            Long count = row.getCount();
-            dailyCounts.computeIfAbsent(date, k -> new HashMap<>()).put(eventType, count);
+        LocalDate startDate = today.minusDays(days - 1L);
+        ZonedDateTime rangeStart = granularity.truncate(startDate.atStartOfDay(SERVER_TIMEZONE));
+        ZonedDateTime rangeEnd = today.plusDays(1).atStartOfDay(SERVER_TIMEZONE);
+
+        // Generate all buckets in range (including empty ones)
+        List<ZonedDateTime> buckets = new ArrayList<>();
+        for (ZonedDateTime bucket = rangeStart; bucket.isBefore(rangeEnd); bucket = granularity.next(bucket)) {
+            buckets.add(bucket);
+        }
+
+        // Bucket start -> eventType -> count
+        Map<Instant, Map<AnalyticsEventType, Long>> bucketCounts = new HashMap<>();
+        if (granularity == TrendGranularity.HOURLY) {
+            jdbcTemplate.query(HOURLY_COUNTS_SQL,
+                    rs -> {
+                        bucketCounts.computeIfAbsent(rs.getTimestamp(1).toInstant(), k -> new HashMap<>())
+                                .merge(AnalyticsEventType.valueOf(rs.getString(2)), rs.getLong(3), Long::sum);
+                    },
+                    userId, Timestamp.from(rangeStart.toInstant()), Timestamp.from(rangeEnd.toInstant()));
+        } else {
+            jdbcTemplate.query(DAILY_BUCKET_COUNTS_SQL,
+                    rs -> {
+                        Instant bucket = rs.getDate(1).toLocalDate().atStartOfDay(SERVER_TIMEZONE).toInstant();
+                        bucketCounts.computeIfAbsent(bucket, k -> new HashMap<>())
+                                .merge(AnalyticsEventType.valueOf(rs.getString(2)), rs.getLong(3), Long::sum);
+                    },
+                    granularity.getSqlField(), userId,
+                    Date.valueOf(rangeStart.toLocalDate()), Date.valueOf(today.plusDays(1)));
         }
 
-        // Generate all dates in range (including missing ones)
-        List<LocalDate> allDates = new ArrayList<>();
-        LocalDate current = startDate;
-        while (!current.isAfter(today)) {
-            allDates.add(current);
-            current = current.plusDays(1);
+        // Bucket start -> {viewers, engaged visitors, bounced visitors}
+        Map<Instant, long[]> visitorTotals = new HashMap<>();
+        if (granularity == TrendGranularity.HOURLY) {
+            Timestamp from = Timestamp.from(rangeStart.toInstant());
+            Timestamp to = Timestamp.from(rangeEnd.toInstant());
+            jdbcTemplate.query(HOURLY_VISITOR_TOTALS_SQL,
+                    rs -> {
+                        addVisitorTotals(visitorTotals, rs.getTimestamp(1).toInstant(), rs);
+                    },
+                    userId, from, to, userId, from, to);
+        } else {
+            Date from = Date.valueOf(rangeStart.toLocalDate());
+            Date to = Date.valueOf(today.plusDays(1));
+            jdbcTemplate.query(DAILY_VISITOR_TOTALS_SQL,
+                    rs -> {
+                        Instant bucket = rs.getDate(1).toLocalDate().atStartOfDay(SERVER_TIMEZONE).toInstant();
+                        addVisitorTotals(visitorTotals, bucket, rs);
+                    },
+                    userId, from, to, userId, from, to, userId, from, to, granularity.getSqlField());
         }
 
         // Build trends
-        List<AnalyticsTrendPoint> views = buildViewsTrend(allDates, dailyCounts);
-        List<AnalyticsTrendPoint> engagementRate = buildEngagementRateTrend(allDates, dailyCounts);
-        List<AnalyticsTrendPoint> bounceRate = buildBounceRateTrend(allDates, dailyCounts);
+        List<AnalyticsTrendPoint> views = new ArrayList<>();
+        List<AnalyticsTrendPoint> engagementRate = new ArrayList<>();
+        List<AnalyticsTrendPoint> bounceRate = new ArrayList<>();
+        for (ZonedDateTime bucket : buckets) {
+            Map<AnalyticsEventType, Long> counts = bucketCounts.getOrDefault(bucket.toInstant(), Map.of());
+            long[] totals = visitorTotals.getOrDefault(bucket.toInstant(), new long[3]);
+
+            views.add(point(bucket, counts.getOrDefault(AnalyticsEventType.VIEW, 0L).intValue(), null));
+            engagementRate.add(point(bucket, null, percentage(totals[1], totals[0])));
+            bounceRate.add(point(bucket, null, percentage(totals[2], totals[0])));
+        }
 
         AnalyticsTrendsResponse response = new AnalyticsTrendsResponse();
+        response.setGranularity(granularity.name());
+        response.setDays(days);
         response.setViews(views);
         response.setEngagementRate(engagementRate);
         response.setBounceRate(bounceRate);
 
+        // Sketches are daily, so unique visitors are only available for daily and coarser buckets
+        LocalDate sketchStart = rangeStart.toLocalDate();
+        Map<LocalDate, HyperLogLog> sketches = visitorSketchService.findDailySketches(userId, sketchStart, today);
+        if (granularity != TrendGranularity.HOURLY) {
+            response.setUniqueVisitors(buildUniqueVisitorsTrend(buckets, granularity, sketches));
+        }
+        HyperLogLog total = new HyperLogLog();
+        sketches.forEach((day, sketch) -> {
+            if (!day.isBefore(startDate)) {
+                total.merge(sketch);
+            }
+        });
+        response.setTotalUniqueVisitors(total.estimate());
+
         return response;
     }
 
-    private List<AnalyticsTrendPoint> buildViewsTrend(
-            List<LocalDate> dates, Map<LocalDate, Map<AnalyticsEventType, Long>> dailyCounts) {
-        List<AnalyticsTrendPoint> trend = new ArrayList<>();
-        
-        for (LocalDate date : dates) {
-            Map<AnalyticsEventType, Long> dayCounts = dailyCounts.getOrDefault(date, new HashMap<>());
-            Long viewCount = dayCounts.getOrDefault(AnalyticsEventType.VIEW, 0L);
-            
-            AnalyticsTrendPoint point = new AnalyticsTrendPoint();
-            point.setDate(date);
-            point.setCount(viewCount.intValue());
-            trend.add(point);
-        }
-        
-        return trend;
+    private static void addVisitorTotals(Map<Instant, long[]> visitorTotals, Instant bucket, ResultSet rs)
+            throws SQLException {
+        visitorTotals.merge(bucket, new long[] { rs.getLong(2), rs.getLong(3), rs.getLong(4) },
+                (a, b) -> new long[] { a[0] + b[0], a[1] + b[1], a[2] + b[2] });
     }
 
-    private List<AnalyticsTrendPoint> buildEngagementRateTrend(
-            List<LocalDate> dates, Map<LocalDate, Map<AnalyticsEventType, Long>> dailyCounts) {
+    private List<AnalyticsTrendPoint> buildUniqueVisitorsTrend(
+            List<ZonedDateTime> buckets, TrendGranularity granularity, Map<LocalDate, HyperLogLog> sketches) {
         List<AnalyticsTrendPoint> trend = new ArrayList<>();
-        
-        for (LocalDate date : dates) {
-            Map<AnalyticsEventType, Long> dayCounts = dailyCounts.getOrDefault(date, new HashMap<>());
-            Long viewCount = dayCounts.getOrDefault(AnalyticsEventType.VIEW, 0L);
-            Long engagedCount = dayCounts.getOrDefault(AnalyticsEventType.ENGAGED, 0L);
-            
-            int rate = 0;
-            if (viewCount > 0) {
-                rate = (int) Math.round((engagedCount.doubleValue() / viewCount.doubleValue()) * 100);
+
+        for (ZonedDateTime bucket : buckets) {
+            // Union of the daily sketches inside the bucket
+            HyperLogLog union = new HyperLogLog();
+            LocalDate bucketEnd = granularity.next(bucket).toLocalDate();
+            for (LocalDate day = bucket.toLocalDate(); day.isBefore(bucketEnd); day = day.plusDays(1)) {
+                HyperLogLog sketch = sketches.get(day);
+                if (sketch != null) {
+                    union.merge(sketch);
+                }
             }
-            
-            AnalyticsTrendPoint point = new AnalyticsTrendPoint();
-            point.setDate(date);
-            point.setValue(rate);
-            trend.add(point);
+            trend.add(point(bucket, (int) union.estimate(), null));
         }
-        
+
         return trend;
     }
 
-    private List<AnalyticsTrendPoint> buildBounceRateTrend(
-            List<LocalDate> dates, Map<LocalDate, Map<AnalyticsEventType, Long>> dailyCounts) {
-        List<AnalyticsTrendPoint> trend = new ArrayList<>();
-        
-        for (LocalDate date : dates) {
-            Map<AnalyticsEventType, Long> dayCounts = dailyCounts.getOrDefault(date, new HashMap<>());
-            Long viewCount = dayCounts.getOrDefault(AnalyticsEventType.VIEW, 0L);
-            Long engagedCount = dayCounts.getOrDefault(AnalyticsEventType.ENGAGED, 0L);
-            
-            // Derive bounce rate: (VIEW count - ENGAGED count) / VIEW count
-            // Note: This is an approximation for trends. Perfect bounce calculation requires
-            // visitor-level grouping which is done in the aggregation service.
-            int rate = 0;
-            if (viewCount > 0) {
-                long bounceCount = Math.max(0, viewCount - engagedCount);
-                rate = (int) Math.round((bounceCount / viewCount.doubleValue()) * 100);
-            }
-            
-            AnalyticsTrendPoint point = new AnalyticsTrendPoint();
-            point.setDate(date);
-            point.setValue(rate);
-            trend.add(point);
+    /**
+     * Share of viewing visitors, rounded to a whole percentage.
+     */
+    private static int percentage(long visitors, long viewers) {
+        if (viewers == 0) {
+            return 0;
         }
-        
-        return trend;
+        return (int) Math.round(((double) visitors / viewers) * 100);
     }
-}
 
+    private static AnalyticsTrendPoint point(ZonedDateTime bucket, Integer count, Integer value) {
+        AnalyticsTrendPoint point = new AnalyticsTrendPoint();
+        point.setDate(bucket.toLocalDate());
+        point.setTimestamp(bucket.toInstant());
+        point.setCount(count);
+        point.setValue(value);
+        return point;
+    }
+}
@@ -1,9 +0,0 @@
-package com.developer.analytics.trends;
-
-import java.time.LocalDate;
-
-public interface DailyEventCountProjection {
-    LocalDate getDate();
-    String getEventType();
-    Long getCount();
-}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.developer.analytics.trends;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.developer.analytics.retention.RetentionWatermark;
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Rebuilds {@code portfolio_analytics_daily} from history, one day range per transaction.
+ *
+ * Days at or after the retention watermark are counted from raw events, older days are taken
+ * from the compacted daily rollup. Instead of replacing rows, the rebuild adds the difference
+ * between the recomputed counts and the stored rows, both read from the same statement snapshot.
+ * Events ingested concurrently are invisible to both sides of that difference, so their rollup
+ * increments survive, and the rebuild only takes the row locks of the rows it corrects, in the
+ * same order as the writers, instead of blocking ingestion for the whole range.
+ */
+@Service
+public class DailyTrendRollupBackfill {
+
+    private static final String FIRST_DAY_SQL = """
+            SELECT LEAST(
+                (SELECT MIN(r.day) FROM portfolio_analytics_daily_rollup r),
+                (SELECT DATE(MIN(e.created_at)) FROM portfolio_analytics_event e))
+            """;
+
+    private static final String REBUILD_SQL = """
+            WITH recomputed AS (
+                SELECT portfolio_user_id, day, event_type, SUM(event_count) AS event_count
+                FROM (
+                    SELECT e.portfolio_user_id, DATE(e.created_at) AS day, e.event_type, COUNT(*) AS event_count
+                    FROM portfolio_analytics_event e
+                    WHERE e.created_at >= GREATEST(CAST(? AS DATE)::TIMESTAMPTZ, ?)
+                        AND e.created_at < CAST(? AS DATE)::TIMESTAMPTZ
+                    GROUP BY 1, 2, 3
+                    UNION ALL
+                    SELECT r.portfolio_user_id, r.day, t.event_type, t.event_count
+                    FROM portfolio_analytics_daily_rollup r
+                    CROSS JOIN LATERAL (
+                        VALUES ('VIEW'::analytics_event_type, r.view_count), ('ENGAGED'::analytics_event_type, r.engaged_count)
+                    ) AS t(event_type, event_count)
+                    WHERE r.day >= ?
+                        AND r.day < ?
+                        AND t.event_count > 0
+                ) sources
+                GROUP BY 1, 2, 3
+            ),
+            stored AS (
+                SELECT portfolio_user_id, day, event_type, event_count
+                FROM portfolio_analytics_daily
+                WHERE day >= ?
+                    AND day < ?
+            ),
+            corrections AS (
+                SELECT portfolio_user_id, day, event_type,
+                       COALESCE(r.event_count, 0) - COALESCE(s.event_count, 0) AS delta
+                FROM recomputed r
+                FULL JOIN stored s USING (portfolio_user_id, day, event_type)
+            )
+            INSERT INTO portfolio_analytics_daily AS d (portfolio_user_id, day, event_type, event_count)
+            SELECT portfolio_user_id, day, event_type, delta
+            FROM corrections
+            WHERE delta <> 0
+            ORDER BY 1, 2, 3
+            ON CONFLICT (portfolio_user_id, day, event_type) DO UPDATE SET
+                event_count = d.event_count + EXCLUDED.event_count
+            """;
+
+    // Rows the correction brought down to nothing; writers only ever add positive counts
+    private static final String DELETE_EMPTY_SQL = """
+            DELETE FROM portfolio_analytics_daily
+            WHERE day >= ?
+                AND day < ?
+                AND event_count <= 0
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DailyTrendRollupBackfill(@Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return The earliest day with any raw or compacted history, if there is any
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER, readOnly = true)
+    public Optional<LocalDate> findFirstDay() {
+        Date first = jdbcTemplate.queryForObject(FIRST_DAY_SQL, Date.class);
+        return Optional.ofNullable(first).map(Date::toLocalDate);
+    }
+
+    /**
+     * @return Today in the database time zone
+     */
+    public LocalDate currentDay() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_DATE", Date.class).toLocalDate();
+    }
+
+    /**
+     * Corrects the rollup rows of every day in [from, to) to the counts recomputed from history.
+     *
+     * @param lease The backfill lease, fenced before anything is written
+     * @return The number of rollup rows corrected
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public int rebuild(LocalDate from, LocalDate to, SchedulerLeaseService.Lease lease) {
+        lease.checkFence(jdbcTemplate);
+
+        // Share lock keeps a concurrent compaction from moving the watermark mid-rebuild
+        RetentionWatermark watermark = jdbcTemplate.queryForObject(
+                "SELECT compacted_before_day, compacted_before FROM portfolio_analytics_retention_state WHERE id = 1 FOR SHARE",
+                (rs, rowNum) -> rs.getDate(1) == null || rs.getTimestamp(2) == null
+                        ? RetentionWatermark.NONE
+                        : new RetentionWatermark(rs.getDate(1).toLocalDate(), rs.getTimestamp(2).toInstant()));
+
+        // An empty rollup range when the whole range is past the watermark
+        LocalDate rollupTo = watermark.rollupBefore().isBefore(to) ? watermark.rollupBefore() : to;
+        int rows = jdbcTemplate.update(REBUILD_SQL,
+                Date.valueOf(from), Timestamp.from(watermark.rawSince()), Date.valueOf(to),
+                Date.valueOf(from), Date.valueOf(rollupTo),
+                Date.valueOf(from), Date.valueOf(to));
+        jdbcTemplate.update(DELETE_EMPTY_SQL, Date.valueOf(from), Date.valueOf(to));
+        return rows;
+    }
+}
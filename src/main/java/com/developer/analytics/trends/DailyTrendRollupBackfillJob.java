@@ -0,0 +1,77 @@
+package com.developer.analytics.trends;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Runs the daily trend rollup backfill on startup when enabled, on one node only.
+ */
+@Component
+public class DailyTrendRollupBackfillJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyTrendRollupBackfillJob.class);
+
+    private static final String LEASE_NAME = "analytics-daily-rollup-backfill";
+
+    private final DailyTrendRollupBackfill backfill;
+    private final TrendRollupProperties properties;
+    private final SchedulerLeaseService leaseService;
+
+    public DailyTrendRollupBackfillJob(
+            DailyTrendRollupBackfill backfill,
+            TrendRollupProperties properties,
+            SchedulerLeaseService leaseService) {
+        this.backfill = backfill;
+        this.properties = properties;
+        this.leaseService = leaseService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (properties.isBackfillOnStartup()) {
+            backfillAll();
+        }
+    }
+
+    /**
+     * Rebuilds the whole daily rollup, oldest days first, in chunks.
+     *
+     * @return The number of rollup rows corrected, or -1 if another node holds the lease
+     */
+    public long backfillAll() {
+        Optional<SchedulerLeaseService.Lease> lease = leaseService.tryAcquire(LEASE_NAME);
+        if (lease.isEmpty()) {
+            logger.debug("Skipping daily trend rollup backfill, another node is the leader");
+            return -1;
+        }
+
+        long rows = 0;
+        try (SchedulerLeaseService.Lease held = lease.get()) {
+            Optional<LocalDate> firstDay = backfill.findFirstDay();
+            if (firstDay.isEmpty()) {
+                return 0;
+            }
+
+            // Include tomorrow so events written around midnight are covered
+            LocalDate end = backfill.currentDay().plusDays(2);
+            int chunkDays = Math.max(1, properties.getBackfillChunkDays());
+            logger.info("Backfilling daily trend rollup from {}", firstDay.get());
+            for (LocalDate from = firstDay.get(); from.isBefore(end) && held.isHeld(); from = from.plusDays(chunkDays)) {
+                LocalDate to = from.plusDays(chunkDays).isBefore(end) ? from.plusDays(chunkDays) : end;
+                rows += backfill.rebuild(from, to, held);
+            }
+            logger.info("Daily trend rollup backfill corrected {} row(s)", rows);
+        } catch (Exception e) {
+            logger.error("Daily trend rollup backfill failed: {}", e.getMessage(), e);
+        }
+        return rows;
+    }
+}
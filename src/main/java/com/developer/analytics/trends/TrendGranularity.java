@@ -0,0 +1,77 @@
+package com.developer.analytics.trends;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * Bucket size of an analytics trend.
+ */
+public enum TrendGranularity {
+    HOURLY("hour", 31),
+    DAILY("day", 365),
+    WEEKLY("week", 365),
+    MONTHLY("month", 365);
+
+    private final String sqlField;
+    private final int maxDays;
+
+    TrendGranularity(String sqlField, int maxDays) {
+        this.sqlField = sqlField;
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * Parses a granularity name case-insensitively.
+     *
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static TrendGranularity parse(String value) {
+        try {
+            return TrendGranularity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unsupported granularity: " + value
+                    + " (expected hourly, daily, weekly or monthly)");
+        }
+    }
+
+    /**
+     * @return The PostgreSQL {@code date_trunc} field for this granularity
+     */
+    public String getSqlField() {
+        return sqlField;
+    }
+
+    /**
+     * @return The longest range, in days, this granularity may be requested for
+     */
+    public int getMaxDays() {
+        return maxDays;
+    }
+
+    /**
+     * Truncates a time to the start of its bucket (weeks start on Monday, like {@code date_trunc}).
+     */
+    public ZonedDateTime truncate(ZonedDateTime time) {
+        return switch (this) {
+            case HOURLY -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAILY -> time.truncatedTo(ChronoUnit.DAYS);
+            case WEEKLY -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * @return The start of the bucket after the one starting at {@code bucketStart}
+     */
+    public ZonedDateTime next(ZonedDateTime bucketStart) {
+        return switch (this) {
+            case HOURLY -> bucketStart.plusHours(1);
+            case DAILY -> bucketStart.plusDays(1);
+            case WEEKLY -> bucketStart.plusWeeks(1);
+            case MONTHLY -> bucketStart.plusMonths(1);
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.developer.analytics.trends;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the pre-aggregated trend rollups.
+ * Bound from the {@code app.analytics.trend-rollup} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.trend-rollup")
+public class TrendRollupProperties {
+
+    /**
+     * Rebuild {@code portfolio_analytics_daily} from history once the application is ready.
+     * Only needed after the table was changed by hand; ingestion keeps it current otherwise.
+     */
+    private boolean backfillOnStartup = false;
+
+    /**
+     * Days rebuilt per transaction. Ingestion into the rollup waits while a chunk is rebuilt.
+     */
+    private int backfillChunkDays = 31;
+
+    /**
+     * Closed days recomputed by every visitor rollup refresh, so late events (e.g. spool
+     * replays) still reach the trend rates.
+     */
+    private int visitorRollupTrailingDays = 2;
+
+    public boolean isBackfillOnStartup() {
+        return backfillOnStartup;
+    }
+
+    public void setBackfillOnStartup(boolean backfillOnStartup) {
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    public int getBackfillChunkDays() {
+        return backfillChunkDays;
+    }
+
+    public void setBackfillChunkDays(int backfillChunkDays) {
+        this.backfillChunkDays = backfillChunkDays;
+    }
+
+    public int getVisitorRollupTrailingDays() {
+        return visitorRollupTrailingDays;
+    }
+
+    public void setVisitorRollupTrailingDays(int visitorRollupTrailingDays) {
+        this.visitorRollupTrailingDays = visitorRollupTrailingDays;
+    }
+}
@@ -0,0 +1,132 @@
+package com.developer.analytics.trends;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Maintains the visitor-level trend rollups ({@code portfolio_analytics_daily_visitors} and
+ * {@code portfolio_analytics_hourly_visitors}) for closed days, so trend rates only scan raw
+ * events of days that have not been rolled up yet (normally just today).
+ *
+ * Each refresh recomputes the trailing days from raw events, replacing their rows, so events
+ * that arrive late for a recent day are picked up; events arriving later than that are not.
+ * Days before the retention watermark are left to {@code portfolio_analytics_daily_rollup}.
+ */
+@Service
+public class VisitorTrendRollup {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorTrendRollup.class);
+
+    private static final String REFRESH_DAILY_SQL = """
+            INSERT INTO portfolio_analytics_daily_visitors
+                (portfolio_user_id, day, viewers, engaged_visitors, bounced_visitors)
+            SELECT portfolio_user_id, day,
+                COUNT(*) FILTER (WHERE viewed),
+                COUNT(*) FILTER (WHERE viewed AND engaged),
+                COUNT(*) FILTER (WHERE viewed AND NOT engaged)
+            FROM (
+                SELECT e.portfolio_user_id, DATE(e.created_at) AS day, e.visitor_key,
+                    bool_or(e.event_type = 'VIEW') AS viewed,
+                    bool_or(e.event_type = 'ENGAGED') AS engaged
+                FROM portfolio_analytics_event e
+                WHERE e.created_at >= CAST(? AS DATE)::TIMESTAMPTZ
+                    AND e.created_at < CAST(? AS DATE)::TIMESTAMPTZ
+                    AND e.event_type IN ('VIEW', 'ENGAGED')
+                GROUP BY 1, 2, 3
+            ) per_visitor
+            GROUP BY portfolio_user_id, day
+            """;
+
+    private static final String REFRESH_HOURLY_SQL = """
+            INSERT INTO portfolio_analytics_hourly_visitors
+                (portfolio_user_id, hour, viewers, engaged_visitors, bounced_visitors)
+            SELECT portfolio_user_id, hour,
+                COUNT(*) FILTER (WHERE viewed),
+                COUNT(*) FILTER (WHERE viewed AND engaged),
+                COUNT(*) FILTER (WHERE viewed AND NOT engaged)
+            FROM (
+                SELECT e.portfolio_user_id, date_trunc('hour', e.created_at) AS hour, e.visitor_key,
+                    bool_or(e.event_type = 'VIEW') AS viewed,
+                    bool_or(e.event_type = 'ENGAGED') AS engaged
+                FROM portfolio_analytics_event e
+                WHERE e.created_at >= CAST(? AS DATE)::TIMESTAMPTZ
+                    AND e.created_at < CAST(? AS DATE)::TIMESTAMPTZ
+                    AND e.event_type IN ('VIEW', 'ENGAGED')
+                GROUP BY 1, 2, 3
+            ) per_visitor
+            GROUP BY portfolio_user_id, hour
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TrendRollupProperties properties;
+
+    public VisitorTrendRollup(
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate,
+            TrendRollupProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Recomputes every closed day since the last refresh, plus the trailing days, and moves
+     * the watermark to today.
+     *
+     * @param lease The rollup lease, fenced before anything is written
+     * @return The number of daily rows written
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)
+    public int refresh(SchedulerLeaseService.Lease lease) {
+        lease.checkFence(jdbcTemplate);
+
+        Date rolledUpBefore = jdbcTemplate.queryForObject(
+                "SELECT rolled_up_before FROM portfolio_analytics_visitor_rollup_state WHERE id = 1 FOR UPDATE",
+                Date.class);
+        // Share lock keeps a concurrent compaction from purging raw days mid-refresh
+        Date compactedBeforeDay = jdbcTemplate.queryForObject(
+                "SELECT compacted_before_day FROM portfolio_analytics_retention_state WHERE id = 1 FOR SHARE",
+                Date.class);
+        LocalDate today = jdbcTemplate.queryForObject("SELECT CURRENT_DATE", Date.class).toLocalDate();
+
+        // A gap (e.g. the job did not run for a while) is caught up from the old watermark
+        LocalDate from = today.minusDays(Math.max(0, properties.getVisitorRollupTrailingDays()));
+        if (rolledUpBefore == null) {
+            from = LocalDate.EPOCH;
+        } else if (rolledUpBefore.toLocalDate().isBefore(from)) {
+            from = rolledUpBefore.toLocalDate();
+        }
+        if (compactedBeforeDay != null) {
+            if (from.isBefore(compactedBeforeDay.toLocalDate())) {
+                from = compactedBeforeDay.toLocalDate();
+            }
+            // Compacted days are read from the daily rollup from now on
+            jdbcTemplate.update("DELETE FROM portfolio_analytics_daily_visitors WHERE day < ?", compactedBeforeDay);
+        }
+
+        int rows = 0;
+        if (from.isBefore(today)) {
+            jdbcTemplate.update("DELETE FROM portfolio_analytics_daily_visitors WHERE day >= ? AND day < ?",
+                    Date.valueOf(from), Date.valueOf(today));
+            jdbcTemplate.update(
+                    "DELETE FROM portfolio_analytics_hourly_visitors WHERE hour >= CAST(? AS DATE)::TIMESTAMPTZ AND hour < CAST(? AS DATE)::TIMESTAMPTZ",
+                    Date.valueOf(from), Date.valueOf(today));
+            rows = jdbcTemplate.update(REFRESH_DAILY_SQL, Date.valueOf(from), Date.valueOf(today));
+            jdbcTemplate.update(REFRESH_HOURLY_SQL, Date.valueOf(from), Date.valueOf(today));
+        }
+
+        jdbcTemplate.update(
+                "UPDATE portfolio_analytics_visitor_rollup_state SET rolled_up_before = ?, updated_at = NOW() WHERE id = 1",
+                Date.valueOf(today));
+        logger.debug("Refreshed visitor trend rollups from {} to {}: {} daily row(s)", from, today, rows);
+        return rows;
+    }
+}
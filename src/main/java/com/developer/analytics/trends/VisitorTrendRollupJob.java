@@ -0,0 +1,45 @@
+package com.developer.analytics.trends;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Refreshes the visitor trend rollups shortly after every hour, on one node only, so a day
+ * is rolled up soon after midnight.
+ */
+@Component
+public class VisitorTrendRollupJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorTrendRollupJob.class);
+
+    private static final String LEASE_NAME = "analytics-visitor-rollup";
+
+    private final VisitorTrendRollup rollup;
+    private final SchedulerLeaseService leaseService;
+
+    public VisitorTrendRollupJob(VisitorTrendRollup rollup, SchedulerLeaseService leaseService) {
+        this.rollup = rollup;
+        this.leaseService = leaseService;
+    }
+
+    @Scheduled(cron = "0 5 * * * ?")
+    public void refresh() {
+        Optional<SchedulerLeaseService.Lease> lease = leaseService.tryAcquire(LEASE_NAME);
+        if (lease.isEmpty()) {
+            logger.debug("Skipping visitor trend rollup, another node is the leader");
+            return;
+        }
+
+        try (SchedulerLeaseService.Lease held = lease.get()) {
+            rollup.refresh(held);
+        } catch (Exception e) {
+            logger.error("Visitor trend rollup failed: {}", e.getMessage(), e);
+        }
+    }
+}
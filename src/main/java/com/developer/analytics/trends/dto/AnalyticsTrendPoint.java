@@ -1,5 +1,6 @@
 package com.developer.analytics.trends.dto;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 import lombok.AllArgsConstructor;
@@ -14,6 +15,7 @@ import lombok.Setter;
 public class AnalyticsTrendPoint {
 
     private LocalDate date;
+    private Instant timestamp; // Bucket start
     private Integer count; // For views
     private Integer value; // For rates (percentage)
 }
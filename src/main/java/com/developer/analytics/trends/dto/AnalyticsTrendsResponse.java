@@ -11,8 +11,12 @@ import lombok.Setter;
 @NoArgsConstructor
 public class AnalyticsTrendsResponse {
 
+    private String granularity;
+    private Integer days;
     private List<AnalyticsTrendPoint> views;
     private List<AnalyticsTrendPoint> engagementRate;
     private List<AnalyticsTrendPoint> bounceRate;
+    private List<AnalyticsTrendPoint> uniqueVisitors;
+    private Long totalUniqueVisitors; // Distinct visitors across the whole range (estimated)
 }
 
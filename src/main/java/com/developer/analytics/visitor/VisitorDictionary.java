@@ -0,0 +1,155 @@
+package com.developer.analytics.visitor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps opaque visitor id strings to compact BIGINT keys stored in analytics tables.
+ *
+ * - Each string is stored once in {@code analytics_visitor}; events, indexes and aggregation
+ *   state reference the key
+ * - A mapping never changes while it exists, but the retention job purges keys that have not
+ *   been looked up for a long time; cached entries therefore expire after a TTL, and every
+ *   lookup marks its keys as seen, so a cached key is never one that has been purged
+ * - When full, a slice of entries is evicted in hash order (effectively random sampling)
+ */
+@Component
+public class VisitorDictionary {
+
+    // Fraction of entries removed when the cache is full, to amortize eviction cost
+    private static final int EVICTION_DIVISOR = 20;
+
+    // The purge spares keys looked up since yesterday, so entries must expire well within a day
+    private static final long MAX_TTL_SECONDS = TimeUnit.HOURS.toSeconds(12);
+
+    private final VisitorDictionaryStore store;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, CachedKey> keys = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public VisitorDictionary(VisitorDictionaryStore store, VisitorDictionaryProperties properties) {
+        this.store = store;
+        this.maxEntries = Math.max(1, properties.getMaxEntries());
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(
+                Math.clamp(properties.getCacheTtlSeconds(), 1, MAX_TTL_SECONDS));
+    }
+
+    /**
+     * Resolves visitor ids to keys, creating dictionary entries for new visitors.
+     * Costs at most one database round trip pair for all misses together.
+     *
+     * @param visitorIds The visitor ids to resolve
+     * @return Key for every given visitor id
+     */
+    public Map<String, Long> resolveAll(Collection<String> visitorIds) {
+        Map<String, Long> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String visitorId : visitorIds) {
+            if (resolved.containsKey(visitorId)) {
+                continue;
+            }
+            Long key = cached(visitorId);
+            if (key != null) {
+                hitCount.incrementAndGet();
+                resolved.put(visitorId, key);
+            } else {
+                resolved.put(visitorId, null);
+                missing.add(visitorId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            missCount.addAndGet(missing.size());
+            Map<String, Long> created = store.findOrCreate(missing.toArray(String[]::new));
+            for (String visitorId : missing) {
+                Long key = created.get(visitorId);
+                if (key == null) {
+                    throw new IllegalStateException("Visitor id was not added to the dictionary: " + visitorId);
+                }
+                cache(visitorId, key);
+                resolved.put(visitorId, key);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Looks up the key of a visitor id without creating one.
+     *
+     * @return The key, or empty if the visitor has never been stored
+     */
+    public OptionalLong find(String visitorId) {
+        Long key = cached(visitorId);
+        if (key != null) {
+            hitCount.incrementAndGet();
+            return OptionalLong.of(key);
+        }
+
+        missCount.incrementAndGet();
+        key = store.find(new String[] { visitorId }).get(visitorId);
+        if (key == null) {
+            return OptionalLong.empty();
+        }
+        cache(visitorId, key);
+        return OptionalLong.of(key);
+    }
+
+    private Long cached(String visitorId) {
+        CachedKey cached = keys.get(visitorId);
+        if (cached == null) {
+            return null;
+        }
+        if (System.nanoTime() - cached.cachedAtNanos() > ttlNanos) {
+            keys.remove(visitorId, cached);
+            return null;
+        }
+        return cached.key();
+    }
+
+    private void cache(String visitorId, long key) {
+        if (keys.size() >= maxEntries) {
+            int toEvict = Math.max(1, maxEntries / EVICTION_DIVISOR);
+            Iterator<String> iterator = keys.keySet().iterator();
+            while (toEvict > 0 && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictionCount.incrementAndGet();
+                toEvict--;
+            }
+        }
+        keys.put(visitorId, new CachedKey(key, System.nanoTime()));
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private record CachedKey(long key, long cachedAtNanos) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.developer.analytics.visitor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the visitor id dictionary.
+ * Bound from the {@code app.analytics.visitor-dictionary} namespace.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.analytics.visitor-dictionary")
+public class VisitorDictionaryProperties {
+
+    /**
+     * Maximum number of visitor id -> key mappings kept in memory.
+     */
+    private int maxEntries = 200_000;
+
+    /**
+     * How long a cached mapping is trusted before it is looked up again. Capped at 12 hours:
+     * the retention purge spares keys looked up since yesterday, so a live entry is never purged.
+     */
+    private long cacheTtlSeconds = 3_600;
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+
+    public void setCacheTtlSeconds(long cacheTtlSeconds) {
+        this.cacheTtlSeconds = cacheTtlSeconds;
+    }
+}
@@ -0,0 +1,82 @@
+package com.developer.analytics.visitor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+
+/**
+ * Database side of the visitor dictionary ({@code analytics_visitor}).
+ *
+ * Every lookup moves {@code last_seen_on} of the keys it returns to today (at most once a day
+ * per key), so a key handed out to a node's cache is never purged while the entry is live.
+ */
+@Component
+public class VisitorDictionaryStore {
+
+    // Sorted so concurrent writers take unique-index locks in the same order
+    private static final String INSERT_MISSING_SQL = """
+            INSERT INTO analytics_visitor (visitor_id)
+            SELECT DISTINCT v FROM unnest(?) AS t(v)
+            ORDER BY 1
+            ON CONFLICT (visitor_id) DO NOTHING
+            """;
+
+    // Locked in id order so concurrent lookups of overlapping visitors cannot deadlock
+    private static final String TOUCH_SQL = """
+            UPDATE analytics_visitor v SET last_seen_on = CURRENT_DATE
+            FROM (
+                SELECT id FROM analytics_visitor
+                WHERE visitor_id = ANY(?) AND last_seen_on < CURRENT_DATE
+                ORDER BY id
+                FOR UPDATE
+            ) stale
+            WHERE v.id = stale.id
+            """;
+
+    private static final String FIND_SQL = "SELECT visitor_id, id FROM analytics_visitor WHERE visitor_id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VisitorDictionaryStore(@Qualifier(AnalyticsDataSourceConfig.ANALYTICS) JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the keys of the given visitor ids, creating missing entries.
+     * Runs in its own transaction so a key handed out is never rolled back with the caller.
+     */
+    @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER, propagation = Propagation.REQUIRES_NEW)
+    public Map<String, Long> findOrCreate(String[] visitorIds) {
+        jdbcTemplate.update(INSERT_MISSING_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", visitorIds));
+        });
+        // Conflicting rows were committed by another writer before our insert returned, so they are visible now
+        return find(visitorIds);
+    }
+
+    /**
+     * Returns the keys of the visitor ids that already have one, marking them as seen today.
+     */
+    public Map<String, Long> find(String[] visitorIds) {
+        jdbcTemplate.update(TOUCH_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", visitorIds));
+        });
+
+        Map<String, Long> keys = new HashMap<>();
+        jdbcTemplate.query(FIND_SQL,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("varchar", visitorIds));
+                },
+                rs -> {
+                    keys.put(rs.getString(1), rs.getLong(2));
+                });
+        return keys;
+    }
+}
@@ -0,0 +1,62 @@
+package com.developer.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.util.StringUtils;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Separate connection pool for analytics, so a tracking spike or a long aggregation run
+ * cannot take connections from logins, profile editing and public portfolio reads.
+ *
+ * The beans are not default candidates: the auto-configured datasource, JdbcTemplate and JPA
+ * transaction manager stay primary, and analytics code opts in with
+ * {@code @Qualifier(AnalyticsDataSourceConfig.ANALYTICS)} and
+ * {@code @Transactional(transactionManager = AnalyticsDataSourceConfig.TRANSACTION_MANAGER)}.
+ */
+@Configuration
+public class AnalyticsDataSourceConfig {
+
+    public static final String ANALYTICS = "analytics";
+
+    public static final String TRANSACTION_MANAGER = "analyticsTransactionManager";
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(ANALYTICS)
+    public HikariDataSource analyticsDataSource(AnalyticsDataSourceProperties properties, Environment environment) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(ANALYTICS);
+        config.setJdbcUrl(orPrimary(properties.getUrl(), environment, "spring.datasource.url"));
+        config.setUsername(orPrimary(properties.getUsername(), environment, "spring.datasource.username"));
+        config.setPassword(orPrimary(properties.getPassword(), environment, "spring.datasource.password"));
+        config.setMaximumPoolSize(properties.getMaximumPoolSize());
+        config.setMinimumIdle(properties.getMinimumIdle());
+        config.setConnectionTimeout(properties.getConnectionTimeoutMillis());
+        config.setIdleTimeout(properties.getIdleTimeoutMillis());
+        config.setMaxLifetime(properties.getMaxLifetimeMillis());
+        return new HikariDataSource(config);
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(ANALYTICS)
+    public JdbcTemplate analyticsJdbcTemplate(@Qualifier(ANALYTICS) DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean(name = TRANSACTION_MANAGER, defaultCandidate = false)
+    public JdbcTransactionManager analyticsTransactionManager(@Qualifier(ANALYTICS) DataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+
+    private static String orPrimary(String value, Environment environment, String primaryKey) {
+        return StringUtils.hasText(value) ? value : environment.getProperty(primaryKey);
+    }
+}
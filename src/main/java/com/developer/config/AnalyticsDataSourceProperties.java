@@ -0,0 +1,101 @@
+package com.developer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.analytics.datasource")
+public class AnalyticsDataSourceProperties {
+
+    /**
+     * JDBC URL of the analytics pool; the primary datasource's when unset. It may go through
+     * a different pooler or database role, but must reach the same database: the analytics
+     * tables are migrated by Flyway on the primary datasource and reference {@code users}.
+     */
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * Connections analytics ingestion, aggregation and trend queries may hold at once.
+     */
+    private int maximumPoolSize = 6;
+
+    private int minimumIdle = 1;
+
+    /**
+     * How long analytics work waits for a connection. Kept short: ingestion spools to disk
+     * and jobs retry, so failing fast beats queueing behind a saturated pool.
+     */
+    private long connectionTimeoutMillis = 5_000;
+
+    private long idleTimeoutMillis = 600_000;
+
+    private long maxLifetimeMillis = 1_800_000;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    public void setMinimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+    }
+
+    public long getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis;
+    }
+
+    public void setConnectionTimeoutMillis(long connectionTimeoutMillis) {
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getMaxLifetimeMillis() {
+        return maxLifetimeMillis;
+    }
+
+    public void setMaxLifetimeMillis(long maxLifetimeMillis) {
+        this.maxLifetimeMillis = maxLifetimeMillis;
+    }
+}
@@ -0,0 +1,37 @@
+package com.developer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.scheduler-lease")
+public class SchedulerLeaseConfig {
+
+    /**
+     * Whether scheduled jobs elect a single leader through the lease table.
+     * Disable only for single-node deployments.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long a lease stays valid without renewal. A dead leader is replaced after at most
+     * this long; it must be shorter than the interval of the most frequent leased job.
+     */
+    private long ttlSeconds = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
@@ -0,0 +1,35 @@
+package com.developer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.user-id-cache")
+public class UserIdCacheConfig {
+
+    /**
+     * Maximum number of username mappings (positive and negative) kept in memory.
+     */
+    private int maxEntries = 50_000;
+
+    /**
+     * How long an unknown username is remembered before the database is asked again.
+     */
+    private long negativeTtlSeconds = 300;
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getNegativeTtlSeconds() {
+        return negativeTtlSeconds;
+    }
+
+    public void setNegativeTtlSeconds(long negativeTtlSeconds) {
+        this.negativeTtlSeconds = negativeTtlSeconds;
+    }
+}
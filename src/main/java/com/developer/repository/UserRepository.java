@@ -1,6 +1,8 @@
 package com.developer.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.developer.entity.User;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
@@ -17,6 +19,9 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByUsername(String username);
 
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<UUID> findIdByUsername(@Param("username") String username);
+
     boolean existsByEmail(String email);
 
     boolean existsByUsername(String username);
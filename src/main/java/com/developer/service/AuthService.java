@@ -26,15 +26,18 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final UserService userService;
     private final JwtTokenProvider jwtTokenProvider;
+    private final UserIdCache userIdCache;
 
     public AuthService(AuthenticationManager authenticationManager,
                        PasswordEncoder passwordEncoder,
                        UserService userService,
-                       JwtTokenProvider jwtTokenProvider) {
+                       JwtTokenProvider jwtTokenProvider,
+                       UserIdCache userIdCache) {
         this.authenticationManager = authenticationManager;
         this.passwordEncoder = passwordEncoder;
         this.userService = userService;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.userIdCache = userIdCache;
     }
 
     @Transactional
@@ -53,6 +56,8 @@ public class AuthService {
         user.setRole(User.Role.USER);
 
         User saved = userService.save(user);
+        // Drop any negative entry left by earlier lookups of this username
+        userIdCache.evict(saved.getUsername());
         return UserResponse.fromEntity(saved);
     }
 
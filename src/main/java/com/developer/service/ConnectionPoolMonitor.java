@@ -0,0 +1,141 @@
+package com.developer.service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.developer.config.AnalyticsDataSourceConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Samples the primary and analytics Hikari pools to show which one runs out of connections.
+ *
+ * A sample counts as saturated when every connection is in use or a thread is waiting for one.
+ * Entering and leaving saturation is logged once per transition rather than per sample,
+ * and a summary of every pool is logged every five minutes.
+ */
+@Component
+public class ConnectionPoolMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
+
+    private final List<Pool> pools = new ArrayList<>();
+
+    public ConnectionPoolMonitor(
+            DataSource dataSource,
+            @Qualifier(AnalyticsDataSourceConfig.ANALYTICS) DataSource analyticsDataSource) {
+        register(dataSource);
+        register(analyticsDataSource);
+    }
+
+    /**
+     * Takes one sample of every pool.
+     */
+    @Scheduled(fixedDelay = 5_000)
+    public void sample() {
+        for (Pool pool : pools) {
+            // Null until the pool has handed out its first connection
+            HikariPoolMXBean bean = pool.dataSource.getHikariPoolMXBean();
+            if (bean == null) {
+                continue;
+            }
+            int active = bean.getActiveConnections();
+            int awaiting = bean.getThreadsAwaitingConnection();
+            boolean saturated = awaiting > 0 || active >= pool.dataSource.getMaximumPoolSize();
+
+            pool.sampleCount.incrementAndGet();
+            pool.peakAwaiting.accumulateAndGet(awaiting, Math::max);
+            if (saturated) {
+                pool.saturatedSampleCount.incrementAndGet();
+            }
+            if (saturated != pool.saturated) {
+                pool.saturated = saturated;
+                if (saturated) {
+                    logger.warn("Connection pool '{}' saturated: {} active of {}, {} thread(s) waiting",
+                            pool.dataSource.getPoolName(), active, pool.dataSource.getMaximumPoolSize(), awaiting);
+                } else {
+                    logger.info("Connection pool '{}' no longer saturated", pool.dataSource.getPoolName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs one line per pool with its current usage and saturation counters since startup,
+     * so operators can compare the pools without a metrics endpoint.
+     */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void logSummary() {
+        for (PoolStats stats : getPools()) {
+            logger.info("Connection pool '{}': {} active, {} idle, {} of {} open, {} waiting; "
+                            + "saturated in {} of {} sample(s), peak {} waiting",
+                    stats.name(), stats.active(), stats.idle(), stats.total(), stats.maximum(),
+                    stats.threadsAwaiting(), stats.saturatedSamples(), stats.samples(), stats.peakThreadsAwaiting());
+        }
+    }
+
+    /**
+     * @return Current usage and saturation counters of every monitored pool
+     */
+    public List<PoolStats> getPools() {
+        List<PoolStats> stats = new ArrayList<>(pools.size());
+        for (Pool pool : pools) {
+            HikariPoolMXBean bean = pool.dataSource.getHikariPoolMXBean();
+            stats.add(new PoolStats(
+                    pool.dataSource.getPoolName(),
+                    bean != null ? bean.getActiveConnections() : 0,
+                    bean != null ? bean.getIdleConnections() : 0,
+                    bean != null ? bean.getTotalConnections() : 0,
+                    pool.dataSource.getMaximumPoolSize(),
+                    bean != null ? bean.getThreadsAwaitingConnection() : 0,
+                    pool.sampleCount.get(),
+                    pool.saturatedSampleCount.get(),
+                    pool.peakAwaiting.get()));
+        }
+        return stats;
+    }
+
+    private void register(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                pools.add(new Pool(dataSource.unwrap(HikariDataSource.class)));
+            }
+        } catch (SQLException e) {
+            // Not a Hikari pool - nothing to sample
+        }
+    }
+
+    public record PoolStats(
+            String name,
+            int active,
+            int idle,
+            int total,
+            int maximum,
+            int threadsAwaiting,
+            long samples,
+            long saturatedSamples,
+            long peakThreadsAwaiting) {
+    }
+
+    private static final class Pool {
+        final HikariDataSource dataSource;
+        final AtomicLong sampleCount = new AtomicLong();
+        final AtomicLong saturatedSampleCount = new AtomicLong();
+        final AtomicLong peakAwaiting = new AtomicLong();
+        volatile boolean saturated;
+
+        Pool(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
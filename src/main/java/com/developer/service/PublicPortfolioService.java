@@ -1,6 +1,7 @@
 package com.developer.service;
 
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
@@ -24,6 +25,7 @@ import com.developer.repository.UserRepository;
 public class PublicPortfolioService {
 
     private final UserRepository userRepository;
+    private final UserIdCache userIdCache;
     private final ProfileRepository profileRepository;
     private final ProjectRepository projectRepository;
     private final EducationRepository educationRepository;
@@ -31,12 +33,14 @@ public class PublicPortfolioService {
     private final PortfolioSettingsService portfolioSettingsService;
 
     public PublicPortfolioService(UserRepository userRepository,
+                                  UserIdCache userIdCache,
                                   ProfileRepository profileRepository,
                                   ProjectRepository projectRepository,
                                   EducationRepository educationRepository,
                                   AchievementRepository achievementRepository,
                                   PortfolioSettingsService portfolioSettingsService) {
         this.userRepository = userRepository;
+        this.userIdCache = userIdCache;
         this.profileRepository = profileRepository;
         this.projectRepository = projectRepository;
         this.educationRepository = educationRepository;
@@ -46,8 +50,10 @@ public class PublicPortfolioService {
 
     @Transactional(readOnly = true)
     public PublicPortfolioResponse getPublicPortfolioByUsername(String username) {
-        User user = userRepository.findByUsername(username)
+        // Cached id lookup; the reference proxy is only used to bind the owner in the queries below
+        UUID userId = userIdCache.findIdByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        User user = userRepository.getReferenceById(userId);
 
         Profile profile = profileRepository.findByUser(user)
                 .orElseThrow(() -> new ResourceNotFoundException("Profile not found"));
@@ -0,0 +1,233 @@
+package com.developer.service;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.developer.config.SchedulerLeaseConfig;
+import com.developer.exception.LeaseLostException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Elects one node per scheduled job using leases in the {@code scheduler_lease} table.
+ *
+ * - Acquire: an atomic upsert takes the lease if it is free, expired or already ours; every
+ *   takeover by a different node increments the fencing token
+ * - Renewal: while a job runs, a heartbeat extends the lease every third of its TTL; renewal
+ *   only succeeds for the current holder and token, so a node that was taken over finds out
+ * - Fencing: jobs check {@link Lease#isHeld()} before each unit of work and stop once the lease
+ *   is lost or its local deadline passes without a successful renewal; every guarded write
+ *   transaction also calls {@link Lease#checkFence} first, which verifies the token on the
+ *   database and share-locks the lease row so no takeover can commit until the write does
+ * - Failover: a dead leader stops renewing and any node can take over once the TTL expires
+ *
+ * Finished jobs keep their lease until it expires instead of releasing it, so a node whose
+ * cron fires a little later in the same tick does not run the job a second time.
+ */
+@Service
+public class SchedulerLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerLeaseService.class);
+
+    private static final String ACQUIRE_SQL = """
+            INSERT INTO scheduler_lease AS l (name, holder, fencing_token, acquired_at, expires_at)
+            VALUES (?, ?, 1, NOW(), NOW() + make_interval(secs => ?))
+            ON CONFLICT (name) DO UPDATE SET
+                holder = EXCLUDED.holder,
+                fencing_token = l.fencing_token + CASE WHEN l.holder = EXCLUDED.holder THEN 0 ELSE 1 END,
+                acquired_at = CASE WHEN l.holder = EXCLUDED.holder THEN l.acquired_at ELSE NOW() END,
+                expires_at = EXCLUDED.expires_at
+            WHERE l.holder = EXCLUDED.holder OR l.expires_at < NOW()
+            RETURNING fencing_token
+            """;
+
+    private static final String RENEW_SQL = """
+            UPDATE scheduler_lease
+            SET expires_at = NOW() + make_interval(secs => ?)
+            WHERE name = ? AND holder = ? AND fencing_token = ? AND expires_at > NOW()
+            """;
+
+    private static final String FENCE_SQL =
+            "SELECT 1 FROM scheduler_lease WHERE name = ? AND fencing_token = ? FOR SHARE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchedulerLeaseConfig config;
+    private final String nodeId;
+    private final ScheduledExecutorService heartbeat;
+
+    public SchedulerLeaseService(JdbcTemplate jdbcTemplate, SchedulerLeaseConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+        this.nodeId = resolveHostName() + "-" + UUID.randomUUID();
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Tries to become the leader for a job. Never blocks on other nodes.
+     *
+     * @param name The job's lease name
+     * @return The held lease, or empty if another node holds it (or the database is unavailable)
+     */
+    public Optional<Lease> tryAcquire(String name) {
+        if (!config.isEnabled()) {
+            return Optional.of(new Lease(name, 0L, 0L, true));
+        }
+
+        long ttlSeconds = Math.max(1, config.getTtlSeconds());
+        try {
+            // Local deadline starts before the database clock does, so it never outlives the row
+            long deadline = deadlineFromNow(ttlSeconds);
+            List<Long> tokens = jdbcTemplate.queryForList(ACQUIRE_SQL, Long.class, name, nodeId, ttlSeconds);
+            if (tokens.isEmpty()) {
+                logger.debug("Lease {} is held by another node", name);
+                return Optional.empty();
+            }
+
+            Lease lease = new Lease(name, tokens.get(0), deadline, false);
+            long periodMillis = Math.max(1, TimeUnit.SECONDS.toMillis(ttlSeconds) / 3);
+            lease.renewal = heartbeat.scheduleAtFixedRate(() -> renew(lease, ttlSeconds),
+                    periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+            logger.debug("Acquired lease {} (token {})", name, lease.getFencingToken());
+            return Optional.of(lease);
+        } catch (Exception e) {
+            logger.warn("Failed to acquire lease {}: {}", name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void renew(Lease lease, long ttlSeconds) {
+        if (lease.lost) {
+            return;
+        }
+        try {
+            long deadline = deadlineFromNow(ttlSeconds);
+            int updated = jdbcTemplate.update(RENEW_SQL, ttlSeconds, lease.name, nodeId, lease.fencingToken);
+            if (updated == 1) {
+                lease.deadlineNanos = deadline;
+            } else {
+                lease.markLost();
+                logLoss(lease);
+            }
+        } catch (Exception e) {
+            // Keep trying until the local deadline passes; isHeld() turns false on its own then
+            logger.warn("Failed to renew lease {}: {}", lease.name, e.getMessage());
+        }
+    }
+
+    private void logLoss(Lease lease) {
+        List<String> holders = jdbcTemplate.query(
+                "SELECT holder FROM scheduler_lease WHERE name = ? AND fencing_token = ?",
+                (rs, rowNum) -> rs.getString(1), lease.name, lease.fencingToken);
+        if (!holders.isEmpty() && nodeId.equals(holders.get(0))) {
+            // Row still carries our token: nobody took over, the renewal just came too late
+            logger.warn("Lease {} (token {}) expired before it could be renewed", lease.name, lease.fencingToken);
+        } else {
+            logger.warn("Lease {} (token {}) was taken over by another node", lease.name, lease.fencingToken);
+        }
+    }
+
+    private static long deadlineFromNow(long ttlSeconds) {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown-host";
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * A lease held by this node. Closing it stops renewal; the lease then expires on its own.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final String name;
+        private final long fencingToken;
+        // Leadership disabled: every node may run every job
+        private final boolean unconditional;
+        private volatile long deadlineNanos;
+        private volatile boolean lost;
+        private volatile ScheduledFuture<?> renewal;
+
+        private Lease(String name, long fencingToken, long deadlineNanos, boolean unconditional) {
+            this.name = name;
+            this.fencingToken = fencingToken;
+            this.deadlineNanos = deadlineNanos;
+            this.unconditional = unconditional;
+        }
+
+        /**
+         * @return true while this node is still the leader; check before each unit of work
+         */
+        public boolean isHeld() {
+            return unconditional || (!lost && System.nanoTime() - deadlineNanos < 0);
+        }
+
+        /**
+         * Verifies on the caller's connection that the lease was not taken over. Call first inside
+         * every guarded write transaction: the share lock on the lease row makes a takeover wait
+         * until that transaction ends, so a stale leader can never commit after a newer one started.
+         *
+         * @param jdbcTemplate Template bound to the transaction doing the write
+         * @throws LeaseLostException If another node holds a newer fencing token
+         */
+        public void checkFence(JdbcTemplate jdbcTemplate) {
+            if (unconditional) {
+                return;
+            }
+            if (jdbcTemplate.queryForList(FENCE_SQL, Integer.class, name, fencingToken).isEmpty()) {
+                markLost();
+                throw new LeaseLostException("Lease " + name + " (token " + fencingToken + ") is no longer held");
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getFencingToken() {
+            return fencingToken;
+        }
+
+        private void markLost() {
+            lost = true;
+            ScheduledFuture<?> future = renewal;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void close() {
+            ScheduledFuture<?> future = renewal;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
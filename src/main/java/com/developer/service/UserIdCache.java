@@ -0,0 +1,161 @@
+package com.developer.service;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.developer.config.UserIdCacheConfig;
+import com.developer.repository.UserRepository;
+
+/**
+ * Bounded username -> user id cache for the public (unauthenticated) hot paths.
+ *
+ * - Known usernames are cached until evicted (usernames are immutable)
+ * - Unknown usernames are cached negatively for a short TTL so random-username probes
+ *   do not reach the database
+ * - When full, a slice of entries is evicted in hash order (effectively random sampling).
+ *   This is deliberate rather than LRU: lookups stay lock-free with no per-hit bookkeeping,
+ *   and an evicted hot username costs a single indexed query before it is cached again
+ * - Hit, miss and eviction counts are logged every five minutes
+ */
+@Component
+public class UserIdCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserIdCache.class);
+
+    // Fraction of entries removed when the cache is full, to amortize eviction cost
+    private static final int EVICTION_DIVISOR = 20;
+
+    private final UserRepository userRepository;
+    private final int maxEntries;
+    private final long negativeTtlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public UserIdCache(UserRepository userRepository, UserIdCacheConfig config) {
+        this.userRepository = userRepository;
+        this.maxEntries = Math.max(1, config.getMaxEntries());
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(config.getNegativeTtlSeconds());
+    }
+
+    /**
+     * Resolves a username to its user id.
+     *
+     * @param username The username to resolve
+     * @return The user id, or empty if no such user exists
+     */
+    public Optional<UUID> findIdByUsername(String username) {
+        if (username == null || username.isBlank()) {
+            return Optional.empty();
+        }
+
+        Entry entry = entries.get(username);
+        if (entry != null) {
+            if (entry.userId() != null) {
+                hitCount.incrementAndGet();
+                return Optional.of(entry.userId());
+            }
+            if (System.nanoTime() < entry.expiresAtNanos()) {
+                negativeHitCount.incrementAndGet();
+                return Optional.empty();
+            }
+            entries.remove(username, entry);
+        }
+
+        missCount.incrementAndGet();
+        UUID userId = userRepository.findIdByUsername(username).orElse(null);
+        ensureCapacity();
+        entries.put(username, userId != null
+                ? new Entry(userId, Long.MAX_VALUE)
+                : new Entry(null, System.nanoTime() + negativeTtlNanos));
+        return Optional.ofNullable(userId);
+    }
+
+    /**
+     * Removes a username mapping, e.g. after the user was created or deleted.
+     * If a transaction is active, the eviction happens after it commits so a concurrent
+     * lookup cannot re-cache the pre-commit state.
+     */
+    public void evict(String username) {
+        if (username == null) {
+            return;
+        }
+        entries.remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entries.remove(username);
+                }
+            });
+        }
+    }
+
+    private void ensureCapacity() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        int toEvict = Math.max(1, maxEntries / EVICTION_DIVISOR);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (toEvict > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+            toEvict--;
+        }
+    }
+
+    /**
+     * Logs the cache size and counters since startup every five minutes once it has been used.
+     */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void logSummary() {
+        long lookups = hitCount.get() + negativeHitCount.get() + missCount.get();
+        if (lookups == 0) {
+            return;
+        }
+        logger.info("User id cache: {} of {} entries; {} lookup(s), {} hit(s), {} negative hit(s), {} miss(es), {} eviction(s)",
+                entries.size(), maxEntries, lookups, hitCount.get(), negativeHitCount.get(), missCount.get(),
+                evictionCount.get());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Cached mapping; a null userId marks a negative entry that expires at expiresAtNanos.
+     */
+    private record Entry(UUID userId, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,80 @@
+-- Convert portfolio_analytics_event into a table range-partitioned by month on created_at.
+-- Queries filtered on created_at are pruned to the relevant partitions, and old months can be
+-- detached or dropped instead of deleted row by row.
+
+-- Creates the monthly partition containing p_month (no-op if it already exists).
+-- Also used by the scheduled partition maintenance job.
+CREATE OR REPLACE FUNCTION create_portfolio_analytics_event_partition(p_month DATE)
+RETURNS TEXT AS $$
+DECLARE
+    month_start DATE := date_trunc('month', p_month)::DATE;
+    month_end DATE := (date_trunc('month', p_month) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'portfolio_analytics_event_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM');
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS %I PARTITION OF portfolio_analytics_event FOR VALUES FROM (%L) TO (%L)',
+        partition_name, month_start, month_end);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE portfolio_analytics_event RENAME TO portfolio_analytics_event_legacy;
+ALTER TABLE portfolio_analytics_event_legacy RENAME CONSTRAINT fk_portfolio_analytics_event_user TO fk_portfolio_analytics_event_legacy_user;
+
+-- Free the index names for the partitioned table; the legacy table is only read sequentially below
+DROP INDEX IF EXISTS idx_portfolio_analytics_event_user_id;
+DROP INDEX IF EXISTS idx_portfolio_analytics_event_created_at;
+DROP INDEX IF EXISTS idx_portfolio_analytics_event_type;
+DROP INDEX IF EXISTS idx_portfolio_analytics_event_user_visitor_created;
+DROP INDEX IF EXISTS idx_portfolio_analytics_event_type_created;
+
+-- The primary key must include the partition key
+CREATE TABLE portfolio_analytics_event (
+    id UUID NOT NULL,
+    portfolio_user_id UUID NOT NULL,
+    visitor_id VARCHAR(255) NOT NULL,
+    event_type analytics_event_type NOT NULL,
+    duration_seconds INTEGER,
+    scroll_depth INTEGER,
+    user_agent VARCHAR(512),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_portfolio_analytics_event PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_portfolio_analytics_event_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside every monthly partition so inserts never fail; expected to stay empty
+CREATE TABLE portfolio_analytics_event_default PARTITION OF portfolio_analytics_event DEFAULT;
+
+-- Partitions for every month with existing data, plus the next three months
+DO $$
+DECLARE
+    first_month DATE;
+    last_month DATE := (date_trunc('month', NOW()) + INTERVAL '3 months')::DATE;
+    current_month DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(created_at))::DATE, date_trunc('month', NOW())::DATE)
+        INTO first_month
+        FROM portfolio_analytics_event_legacy;
+
+    current_month := first_month;
+    WHILE current_month <= last_month LOOP
+        PERFORM create_portfolio_analytics_event_partition(current_month);
+        current_month := (current_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+-- Only the indexes the application queries actually use. The single-column user_id,
+-- created_at and event_type indexes are dropped: the composite indexes cover the user_id
+-- prefix, partition pruning replaces the created_at index, and event_type has two values.
+CREATE INDEX IF NOT EXISTS idx_portfolio_analytics_event_user_visitor_created
+    ON portfolio_analytics_event(portfolio_user_id, visitor_id, created_at DESC);
+
+CREATE INDEX IF NOT EXISTS idx_portfolio_analytics_event_user_created
+    ON portfolio_analytics_event(portfolio_user_id, created_at);
+
+INSERT INTO portfolio_analytics_event
+    (id, portfolio_user_id, visitor_id, event_type, duration_seconds, scroll_depth, user_agent, created_at)
+SELECT id, portfolio_user_id, visitor_id, event_type, duration_seconds, scroll_depth, user_agent, created_at
+FROM portfolio_analytics_event_legacy;
+
+DROP TABLE portfolio_analytics_event_legacy;
@@ -0,0 +1,26 @@
+-- Compact per-portfolio, per-day rollup of raw analytics events that have aged out of retention.
+-- Visitor-level counts are exact within a day: bounce_count is visitors with a VIEW but no ENGAGED that day.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_daily_rollup (
+    portfolio_user_id UUID NOT NULL,
+    day DATE NOT NULL,
+    view_count BIGINT NOT NULL DEFAULT 0,
+    engaged_count BIGINT NOT NULL DEFAULT 0,
+    unique_visitors BIGINT NOT NULL DEFAULT 0,
+    engaged_visitors BIGINT NOT NULL DEFAULT 0,
+    bounce_count BIGINT NOT NULL DEFAULT 0,
+    duration_sum BIGINT NOT NULL DEFAULT 0,
+    duration_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_portfolio_analytics_daily_rollup PRIMARY KEY (portfolio_user_id, day),
+    CONSTRAINT fk_portfolio_analytics_daily_rollup_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Single-row watermark: raw events before compacted_before have been folded into the rollup
+-- and are ignored by readers (and purged in the background).
+CREATE TABLE IF NOT EXISTS portfolio_analytics_retention_state (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    compacted_before_day DATE,
+    compacted_before TIMESTAMPTZ,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+INSERT INTO portfolio_analytics_retention_state (id) VALUES (1) ON CONFLICT (id) DO NOTHING;
@@ -0,0 +1,26 @@
+-- Per-portfolio state for incremental aggregation.
+-- Events up to (last_created_at, last_event_id) have been folded into the running totals
+-- (total_views through duration_count), which start from the compacted rollup history
+-- that existed when the portfolio was seeded.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_aggregation_state (
+    portfolio_user_id UUID PRIMARY KEY,
+    last_created_at TIMESTAMPTZ NOT NULL,
+    last_event_id UUID NOT NULL,
+    total_views BIGINT NOT NULL DEFAULT 0,
+    engaged_views BIGINT NOT NULL DEFAULT 0,
+    bounce_count BIGINT NOT NULL DEFAULT 0,
+    duration_sum BIGINT NOT NULL DEFAULT 0,
+    duration_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT fk_portfolio_analytics_aggregation_state_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Visitor-level flags so derived bounce and unique counts stay exact across runs
+CREATE TABLE IF NOT EXISTS portfolio_analytics_visitor_state (
+    portfolio_user_id UUID NOT NULL,
+    visitor_id VARCHAR(255) NOT NULL,
+    viewed BOOLEAN NOT NULL DEFAULT FALSE,
+    engaged BOOLEAN NOT NULL DEFAULT FALSE,
+    CONSTRAINT pk_portfolio_analytics_visitor_state PRIMARY KEY (portfolio_user_id, visitor_id),
+    CONSTRAINT fk_portfolio_analytics_visitor_state_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
@@ -0,0 +1,13 @@
+-- Portfolios that received events since they were last aggregated.
+-- Rows are inserted by the ingestion path and claimed (deleted) by the aggregation scheduler.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_dirty (
+    portfolio_user_id UUID PRIMARY KEY,
+    marked_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT fk_portfolio_analytics_dirty_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Seed with every portfolio that has events so the first run after deployment is complete
+INSERT INTO portfolio_analytics_dirty (portfolio_user_id, marked_at)
+SELECT DISTINCT portfolio_user_id, TIMESTAMPTZ 'epoch'
+FROM portfolio_analytics_event
+ON CONFLICT (portfolio_user_id) DO NOTHING;
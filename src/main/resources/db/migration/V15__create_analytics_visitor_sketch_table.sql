@@ -0,0 +1,10 @@
+-- HyperLogLog sketch of distinct VIEW visitors per portfolio per day.
+-- registers holds 4096 one-byte registers; sparse sketches compress well in TOAST.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_visitor_sketch (
+    portfolio_user_id UUID NOT NULL,
+    day DATE NOT NULL,
+    registers BYTEA NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_portfolio_analytics_visitor_sketch PRIMARY KEY (portfolio_user_id, day),
+    CONSTRAINT fk_portfolio_analytics_visitor_sketch_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
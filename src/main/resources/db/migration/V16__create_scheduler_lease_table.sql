@@ -0,0 +1,9 @@
+-- Leases that elect one node per scheduled job across replicas.
+-- fencing_token increases every time a different node takes the lease over.
+CREATE TABLE IF NOT EXISTS scheduler_lease (
+    name VARCHAR(100) PRIMARY KEY,
+    holder VARCHAR(255) NOT NULL,
+    fencing_token BIGINT NOT NULL,
+    acquired_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    expires_at TIMESTAMPTZ NOT NULL
+);
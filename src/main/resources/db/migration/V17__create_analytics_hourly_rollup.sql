@@ -0,0 +1,30 @@
+-- Finest resolution of the pre-aggregated trend rollups: events per portfolio per hour and type.
+-- Maintained by the event writer in the same statement that inserts the events.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_hourly (
+    portfolio_user_id UUID NOT NULL,
+    hour TIMESTAMPTZ NOT NULL,
+    event_type analytics_event_type NOT NULL,
+    event_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_portfolio_analytics_hourly PRIMARY KEY (portfolio_user_id, hour, event_type),
+    CONSTRAINT fk_portfolio_analytics_hourly_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Backfill from raw events that have not been compacted yet
+INSERT INTO portfolio_analytics_hourly (portfolio_user_id, hour, event_type, event_count)
+SELECT e.portfolio_user_id, date_trunc('hour', e.created_at), e.event_type, COUNT(*)
+FROM portfolio_analytics_event e
+WHERE e.created_at >= COALESCE(
+    (SELECT compacted_before FROM portfolio_analytics_retention_state WHERE id = 1),
+    '-infinity'::TIMESTAMPTZ)
+GROUP BY e.portfolio_user_id, date_trunc('hour', e.created_at), e.event_type;
+
+-- Compacted days only have daily totals; attribute them to the first hour of the day
+INSERT INTO portfolio_analytics_hourly AS h (portfolio_user_id, hour, event_type, event_count)
+SELECT r.portfolio_user_id, r.day::TIMESTAMPTZ, t.event_type, t.event_count
+FROM portfolio_analytics_daily_rollup r
+CROSS JOIN LATERAL (
+    VALUES ('VIEW'::analytics_event_type, r.view_count), ('ENGAGED'::analytics_event_type, r.engaged_count)
+) AS t(event_type, event_count)
+WHERE t.event_count > 0
+ON CONFLICT (portfolio_user_id, hour, event_type) DO UPDATE SET
+    event_count = h.event_count + EXCLUDED.event_count;
@@ -0,0 +1,31 @@
+-- Daily trend rollup: events per portfolio per day and type, days in the database time zone
+-- like DATE(created_at). Maintained by the event writer in the same statement that inserts
+-- the events; rebuilt from history by DailyTrendRollupBackfill.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_daily (
+    portfolio_user_id UUID NOT NULL,
+    day DATE NOT NULL,
+    event_type analytics_event_type NOT NULL,
+    event_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_portfolio_analytics_daily PRIMARY KEY (portfolio_user_id, day, event_type),
+    CONSTRAINT fk_portfolio_analytics_daily_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Initial backfill from raw events that have not been compacted yet
+INSERT INTO portfolio_analytics_daily (portfolio_user_id, day, event_type, event_count)
+SELECT e.portfolio_user_id, DATE(e.created_at), e.event_type, COUNT(*)
+FROM portfolio_analytics_event e
+WHERE e.created_at >= COALESCE(
+    (SELECT compacted_before FROM portfolio_analytics_retention_state WHERE id = 1),
+    '-infinity'::TIMESTAMPTZ)
+GROUP BY e.portfolio_user_id, DATE(e.created_at), e.event_type;
+
+-- ...and from compacted history
+INSERT INTO portfolio_analytics_daily AS d (portfolio_user_id, day, event_type, event_count)
+SELECT r.portfolio_user_id, r.day, t.event_type, t.event_count
+FROM portfolio_analytics_daily_rollup r
+CROSS JOIN LATERAL (
+    VALUES ('VIEW'::analytics_event_type, r.view_count), ('ENGAGED'::analytics_event_type, r.engaged_count)
+) AS t(event_type, event_count)
+WHERE t.event_count > 0
+ON CONFLICT (portfolio_user_id, day, event_type) DO UPDATE SET
+    event_count = d.event_count + EXCLUDED.event_count;
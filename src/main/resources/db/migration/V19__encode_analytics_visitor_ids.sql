@@ -0,0 +1,44 @@
+-- Visitor dictionary: each opaque visitor string is stored once and referenced by a BIGINT key
+CREATE TABLE IF NOT EXISTS analytics_visitor (
+    id BIGINT GENERATED ALWAYS AS IDENTITY,
+    visitor_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_analytics_visitor PRIMARY KEY (id),
+    CONSTRAINT uq_analytics_visitor_visitor_id UNIQUE (visitor_id)
+);
+
+INSERT INTO analytics_visitor (visitor_id)
+SELECT visitor_id FROM portfolio_analytics_event
+UNION
+SELECT visitor_id FROM portfolio_analytics_visitor_state
+ON CONFLICT (visitor_id) DO NOTHING;
+
+-- Events store the key instead of the string
+ALTER TABLE portfolio_analytics_event ADD COLUMN IF NOT EXISTS visitor_key BIGINT;
+
+UPDATE portfolio_analytics_event e
+SET visitor_key = v.id
+FROM analytics_visitor v
+WHERE v.visitor_id = e.visitor_id;
+
+ALTER TABLE portfolio_analytics_event ALTER COLUMN visitor_key SET NOT NULL;
+
+DROP INDEX IF EXISTS idx_portfolio_analytics_event_user_visitor_created;
+ALTER TABLE portfolio_analytics_event DROP COLUMN visitor_id;
+
+CREATE INDEX IF NOT EXISTS idx_portfolio_analytics_event_user_visitor_created
+    ON portfolio_analytics_event(portfolio_user_id, visitor_key, created_at DESC);
+
+-- Incremental aggregation visitor flags
+ALTER TABLE portfolio_analytics_visitor_state ADD COLUMN IF NOT EXISTS visitor_key BIGINT;
+
+UPDATE portfolio_analytics_visitor_state s
+SET visitor_key = v.id
+FROM analytics_visitor v
+WHERE v.visitor_id = s.visitor_id;
+
+ALTER TABLE portfolio_analytics_visitor_state DROP CONSTRAINT pk_portfolio_analytics_visitor_state;
+ALTER TABLE portfolio_analytics_visitor_state DROP COLUMN visitor_id;
+ALTER TABLE portfolio_analytics_visitor_state ALTER COLUMN visitor_key SET NOT NULL;
+ALTER TABLE portfolio_analytics_visitor_state
+    ADD CONSTRAINT pk_portfolio_analytics_visitor_state PRIMARY KEY (portfolio_user_id, visitor_key);
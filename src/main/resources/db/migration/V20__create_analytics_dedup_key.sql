@@ -0,0 +1,15 @@
+-- Database-enforced de-duplication: one claim per (portfolio, visitor, event type, 30-minute bucket).
+-- Kept outside the partitioned event table, whose unique indexes would have to include created_at.
+-- Claims only need to outlive the de-duplication window and are purged after a retention period.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_dedup_key (
+    portfolio_user_id UUID NOT NULL,
+    visitor_key BIGINT NOT NULL,
+    event_type analytics_event_type NOT NULL,
+    bucket BIGINT NOT NULL,
+    event_id UUID NOT NULL,
+    CONSTRAINT pk_portfolio_analytics_dedup_key PRIMARY KEY (portfolio_user_id, visitor_key, event_type, bucket),
+    CONSTRAINT fk_portfolio_analytics_dedup_key_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_portfolio_analytics_dedup_key_bucket
+    ON portfolio_analytics_dedup_key(bucket);
@@ -0,0 +1,74 @@
+-- Visitor-level trend rollups: per portfolio and day (or hour), the visitors with a VIEW,
+-- those of them that also had an ENGAGED event and those that did not (bounced). Engaged and
+-- bounced visitors always add up to the viewers of the same day or hour.
+-- Refreshed for closed days by VisitorTrendRollup; days at or after rolled_up_before are
+-- still read from raw events.
+CREATE TABLE IF NOT EXISTS portfolio_analytics_daily_visitors (
+    portfolio_user_id UUID NOT NULL,
+    day DATE NOT NULL,
+    viewers BIGINT NOT NULL DEFAULT 0,
+    engaged_visitors BIGINT NOT NULL DEFAULT 0,
+    bounced_visitors BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_portfolio_analytics_daily_visitors PRIMARY KEY (portfolio_user_id, day),
+    CONSTRAINT fk_portfolio_analytics_daily_visitors_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS portfolio_analytics_hourly_visitors (
+    portfolio_user_id UUID NOT NULL,
+    hour TIMESTAMPTZ NOT NULL,
+    viewers BIGINT NOT NULL DEFAULT 0,
+    engaged_visitors BIGINT NOT NULL DEFAULT 0,
+    bounced_visitors BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_portfolio_analytics_hourly_visitors PRIMARY KEY (portfolio_user_id, hour),
+    CONSTRAINT fk_portfolio_analytics_hourly_visitors_user FOREIGN KEY (portfolio_user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Single-row watermark: days before rolled_up_before are covered by the tables above
+-- (or by portfolio_analytics_daily_rollup once compacted).
+CREATE TABLE IF NOT EXISTS portfolio_analytics_visitor_rollup_state (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    rolled_up_before DATE,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- Initial fill from raw events of closed days that have not been compacted yet
+INSERT INTO portfolio_analytics_daily_visitors (portfolio_user_id, day, viewers, engaged_visitors, bounced_visitors)
+SELECT portfolio_user_id, day,
+    COUNT(*) FILTER (WHERE viewed),
+    COUNT(*) FILTER (WHERE viewed AND engaged),
+    COUNT(*) FILTER (WHERE viewed AND NOT engaged)
+FROM (
+    SELECT e.portfolio_user_id, DATE(e.created_at) AS day, e.visitor_key,
+        bool_or(e.event_type = 'VIEW') AS viewed,
+        bool_or(e.event_type = 'ENGAGED') AS engaged
+    FROM portfolio_analytics_event e
+    WHERE e.created_at >= COALESCE(
+            (SELECT compacted_before FROM portfolio_analytics_retention_state WHERE id = 1),
+            '-infinity'::TIMESTAMPTZ)
+        AND e.created_at < CURRENT_DATE::TIMESTAMPTZ
+        AND e.event_type IN ('VIEW', 'ENGAGED')
+    GROUP BY 1, 2, 3
+) per_visitor
+GROUP BY portfolio_user_id, day;
+
+INSERT INTO portfolio_analytics_hourly_visitors (portfolio_user_id, hour, viewers, engaged_visitors, bounced_visitors)
+SELECT portfolio_user_id, hour,
+    COUNT(*) FILTER (WHERE viewed),
+    COUNT(*) FILTER (WHERE viewed AND engaged),
+    COUNT(*) FILTER (WHERE viewed AND NOT engaged)
+FROM (
+    SELECT e.portfolio_user_id, date_trunc('hour', e.created_at) AS hour, e.visitor_key,
+        bool_or(e.event_type = 'VIEW') AS viewed,
+        bool_or(e.event_type = 'ENGAGED') AS engaged
+    FROM portfolio_analytics_event e
+    WHERE e.created_at >= COALESCE(
+            (SELECT compacted_before FROM portfolio_analytics_retention_state WHERE id = 1),
+            '-infinity'::TIMESTAMPTZ)
+        AND e.created_at < CURRENT_DATE::TIMESTAMPTZ
+        AND e.event_type IN ('VIEW', 'ENGAGED')
+    GROUP BY 1, 2, 3
+) per_visitor
+GROUP BY portfolio_user_id, hour;
+
+INSERT INTO portfolio_analytics_visitor_rollup_state (id, rolled_up_before) VALUES (1, CURRENT_DATE)
+ON CONFLICT (id) DO NOTHING;
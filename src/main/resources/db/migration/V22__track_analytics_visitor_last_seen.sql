@@ -0,0 +1,24 @@
+-- Day a visitor key was last looked up (or created), so the retention job can purge keys of
+-- visitors not seen since the watermark without scanning raw events.
+ALTER TABLE analytics_visitor ADD COLUMN IF NOT EXISTS last_seen_on DATE;
+
+UPDATE analytics_visitor SET last_seen_on = DATE(created_at) WHERE last_seen_on IS NULL;
+
+UPDATE analytics_visitor v
+SET last_seen_on = GREATEST(v.last_seen_on, s.day)
+FROM (
+    SELECT visitor_key, MAX(DATE(created_at)) AS day
+    FROM portfolio_analytics_event
+    GROUP BY visitor_key
+) s
+WHERE v.id = s.visitor_key;
+
+ALTER TABLE analytics_visitor ALTER COLUMN last_seen_on SET DEFAULT CURRENT_DATE;
+ALTER TABLE analytics_visitor ALTER COLUMN last_seen_on SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_analytics_visitor_last_seen_on
+    ON analytics_visitor(last_seen_on);
+
+-- Lets the purge delete the incremental aggregation flags of purged keys
+CREATE INDEX IF NOT EXISTS idx_portfolio_analytics_visitor_state_visitor_key
+    ON portfolio_analytics_visitor_state(visitor_key);
@@ -0,0 +1,8 @@
+-- First mark since the portfolio was last aggregated. Unlike marked_at it is not moved by
+-- later marks, so a portfolio that never goes quiet is still aggregated after a maximum delay.
+ALTER TABLE portfolio_analytics_dirty ADD COLUMN IF NOT EXISTS first_marked_at TIMESTAMPTZ;
+
+UPDATE portfolio_analytics_dirty SET first_marked_at = marked_at WHERE first_marked_at IS NULL;
+
+ALTER TABLE portfolio_analytics_dirty ALTER COLUMN first_marked_at SET DEFAULT NOW();
+ALTER TABLE portfolio_analytics_dirty ALTER COLUMN first_marked_at SET NOT NULL;
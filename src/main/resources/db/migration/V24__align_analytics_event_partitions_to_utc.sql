@@ -0,0 +1,111 @@
+-- Monthly partitions of portfolio_analytics_event are bounded by UTC month starts, matching the
+-- UTC months the maintenance job asks for. V11 used DATE literals, which were read in the time
+-- zone of the session that created the partition.
+--
+-- Creating a partition also moves the rows the DEFAULT partition caught for its month (e.g.
+-- events with a future timestamp); CREATE TABLE ... PARTITION OF fails while such rows exist.
+--
+-- Bounds follow an existing neighbour partition where there is one, so months created with
+-- the old session-time-zone bounds stay contiguous with the new ones.
+CREATE OR REPLACE FUNCTION create_portfolio_analytics_event_partition(p_month DATE)
+RETURNS TEXT AS $$
+DECLARE
+    month_start DATE := date_trunc('month', p_month)::DATE;
+    month_end DATE := (date_trunc('month', p_month) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'portfolio_analytics_event_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM');
+    previous_name TEXT := 'portfolio_analytics_event_y' || to_char(month_start - 1, 'YYYY') || 'm' || to_char(month_start - 1, 'MM');
+    next_name TEXT := 'portfolio_analytics_event_y' || to_char(month_end, 'YYYY') || 'm' || to_char(month_end, 'MM');
+    lower_bound TIMESTAMPTZ;
+    upper_bound TIMESTAMPTZ;
+    moved_rows BIGINT;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    -- Rendered bounds carry their UTC offset, so parsing them back does not depend on the session
+    SELECT (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \(''([^'']+)''\)'))[1]::TIMESTAMPTZ
+        INTO lower_bound
+        FROM pg_class c
+        WHERE c.oid = to_regclass(previous_name);
+    SELECT (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \(''([^'']+)''\)'))[1]::TIMESTAMPTZ
+        INTO upper_bound
+        FROM pg_class c
+        WHERE c.oid = to_regclass(next_name);
+    lower_bound := COALESCE(lower_bound, (to_char(month_start, 'YYYY-MM-DD') || ' 00:00:00 UTC')::TIMESTAMPTZ);
+    upper_bound := COALESCE(upper_bound, (to_char(month_end, 'YYYY-MM-DD') || ' 00:00:00 UTC')::TIMESTAMPTZ);
+
+    -- Creating a partition locks the DEFAULT partition this way anyway; taken first so no row
+    -- for the month can reach it between the move and the attach
+    LOCK TABLE portfolio_analytics_event_default IN ACCESS EXCLUSIVE MODE;
+
+    IF EXISTS (
+        SELECT 1 FROM portfolio_analytics_event_default
+        WHERE created_at >= lower_bound AND created_at < upper_bound
+    ) THEN
+        EXECUTE format(
+            'CREATE TABLE %I (LIKE portfolio_analytics_event INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+            partition_name);
+        EXECUTE format(
+            'WITH moved AS (
+                 DELETE FROM portfolio_analytics_event_default
+                 WHERE created_at >= %L AND created_at < %L
+                 RETURNING id, portfolio_user_id, visitor_key, event_type, duration_seconds, scroll_depth, user_agent, created_at
+             )
+             INSERT INTO %I (id, portfolio_user_id, visitor_key, event_type, duration_seconds, scroll_depth, user_agent, created_at)
+             SELECT id, portfolio_user_id, visitor_key, event_type, duration_seconds, scroll_depth, user_agent, created_at
+             FROM moved',
+            lower_bound, upper_bound, partition_name);
+        GET DIAGNOSTICS moved_rows = ROW_COUNT;
+        EXECUTE format(
+            'ALTER TABLE portfolio_analytics_event ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+            partition_name, lower_bound, upper_bound);
+        RAISE NOTICE 'Moved % row(s) from the default partition into %', moved_rows, partition_name;
+    ELSE
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF portfolio_analytics_event FOR VALUES FROM (%L) TO (%L)',
+            partition_name, lower_bound, upper_bound);
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Re-create empty partitions whose bounds are not UTC month starts (nothing to move yet).
+-- Partitions that already hold rows keep their bounds: every row is still routed correctly.
+-- All misaligned months are dropped before any is re-created, so a re-created month does not
+-- inherit the old bounds of its not yet re-created neighbour.
+DO $$
+DECLARE
+    part RECORD;
+    month_start DATE;
+    has_rows BOOLEAN;
+    dropped_months DATE[] := ARRAY[]::DATE[];
+BEGIN
+    FOR part IN
+        SELECT c.relname,
+               (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \(''([^'']+)''\)'))[1]::TIMESTAMPTZ AS lower_bound,
+               (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \(''([^'']+)''\)'))[1]::TIMESTAMPTZ AS upper_bound
+        FROM pg_inherits i
+        JOIN pg_class p ON p.oid = i.inhparent
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE p.relname = 'portfolio_analytics_event'
+            AND c.relname ~ '^portfolio_analytics_event_y[0-9]{4}m[0-9]{2}$'
+        ORDER BY c.relname
+    LOOP
+        month_start := to_date(substring(part.relname FROM 'y([0-9]{4}m[0-9]{2})$'), 'YYYY"m"MM');
+        CONTINUE WHEN part.lower_bound = (to_char(month_start, 'YYYY-MM-DD') || ' 00:00:00 UTC')::TIMESTAMPTZ
+            AND part.upper_bound = (to_char((month_start + INTERVAL '1 month')::DATE, 'YYYY-MM-DD') || ' 00:00:00 UTC')::TIMESTAMPTZ;
+
+        EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', part.relname) INTO has_rows;
+        IF has_rows THEN
+            RAISE NOTICE 'Keeping the bounds of %, it already holds rows', part.relname;
+            CONTINUE;
+        END IF;
+        EXECUTE format('DROP TABLE %I', part.relname);
+        dropped_months := dropped_months || month_start;
+    END LOOP;
+
+    FOREACH month_start IN ARRAY dropped_months LOOP
+        PERFORM create_portfolio_analytics_event_partition(month_start);
+    END LOOP;
+END $$;
@@ -0,0 +1,5 @@
+-- V17 attributed the daily totals of compacted days to their first hour, which showed up as a
+-- midnight spike in hourly trends. Hourly rollups no longer cover compacted days: the trend
+-- queries skip hours before the watermark, and the rows already written for them are removed.
+DELETE FROM portfolio_analytics_hourly
+WHERE hour < (SELECT compacted_before FROM portfolio_analytics_retention_state WHERE id = 1);
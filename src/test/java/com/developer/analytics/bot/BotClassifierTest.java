@@ -0,0 +1,72 @@
+package com.developer.analytics.bot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BotClassifierTest {
+
+    @Test
+    void flagsKnownCrawlers() {
+        BotClassifier classifier = new BotClassifier(new BotDetectionProperties());
+
+        assertThat(classifier.isBot("Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)")).isTrue();
+        assertThat(classifier.isBot("Slackbot-LinkExpanding 1.0")).isTrue();
+        assertThat(classifier.isBot("curl/8.4.0")).isTrue();
+    }
+
+    @Test
+    void letsBrowsersThrough() {
+        BotClassifier classifier = new BotClassifier(new BotDetectionProperties());
+
+        assertThat(classifier.isBot(
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 Chrome/120.0 Safari/537.36")).isFalse();
+    }
+
+    @Test
+    void treatsMissingUserAgentAsHuman() {
+        BotClassifier classifier = new BotClassifier(new BotDetectionProperties());
+
+        assertThat(classifier.isBot(null)).isFalse();
+        assertThat(classifier.isBot("")).isFalse();
+        assertThat(classifier.isBot("   ")).isFalse();
+    }
+
+    @Test
+    void allowPatternOverridesDenyPattern() {
+        BotDetectionProperties properties = new BotDetectionProperties();
+        properties.setAllowPatterns(List.of("friendlybot"));
+        BotClassifier classifier = new BotClassifier(properties);
+
+        assertThat(classifier.isBot("FriendlyBot/1.0")).isFalse();
+        assertThat(classifier.isBot("OtherBot/1.0")).isTrue();
+    }
+
+    @Test
+    void cachedVerdictsMatchFreshOnes() {
+        BotClassifier classifier = new BotClassifier(new BotDetectionProperties());
+        String crawler = "Mozilla/5.0 (compatible; bingbot/2.0)";
+        String browser = "Mozilla/5.0 (X11; Linux x86_64) Firefox/121.0";
+
+        assertThat(classifier.isBot(crawler)).isTrue();
+        assertThat(classifier.isBot(browser)).isFalse();
+        assertThat(classifier.isBot(crawler)).isTrue();
+        assertThat(classifier.isBot(browser)).isFalse();
+        assertThat(classifier.getCacheMissCount()).isEqualTo(2);
+        assertThat(classifier.getCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void collidingCacheSlotsDoNotMixUpVerdicts() {
+        BotDetectionProperties properties = new BotDetectionProperties();
+        properties.setVerdictCacheSize(1);
+        BotClassifier classifier = new BotClassifier(properties);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(classifier.isBot("Googlebot/2.1")).isTrue();
+            assertThat(classifier.isBot("Mozilla/5.0 Firefox/121.0")).isFalse();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.developer.analytics.bot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+class MultiPatternMatcherTest {
+
+    @Test
+    void matchesPatternAnywhereInInput() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("bot", "crawler"));
+
+        assertThat(matcher.matches("bot")).isTrue();
+        assertThat(matcher.matches("Mozilla/5.0 (compatible; Googlebot/2.1)")).isTrue();
+        assertThat(matcher.matches("some-crawler-v2")).isTrue();
+        assertThat(matcher.matches("Mozilla/5.0 (Windows NT 10.0; Win64; x64)")).isFalse();
+    }
+
+    @Test
+    void ignoresAsciiCaseOfPatternsAndInput() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("HeadLess"));
+
+        assertThat(matcher.matches("HEADLESSCHROME")).isTrue();
+        assertThat(matcher.matches("headlesschrome")).isTrue();
+    }
+
+    @Test
+    void followsFailureLinksAfterPartialMatch() {
+        // "aab" fails on the second "a" of "aaab" and must resume at the suffix "aa"
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("aab"));
+        assertThat(matcher.matches("aaab")).isTrue();
+
+        // "she" contains "he", which only becomes accepting through its failure link
+        MultiPatternMatcher overlapping = MultiPatternMatcher.compile(List.of("she", "he"));
+        assertThat(overlapping.matches("sh-he")).isTrue();
+        assertThat(overlapping.matches("sh")).isFalse();
+    }
+
+    @Test
+    void patternThatIsSuffixOfAnotherIsFound() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("linkedinbot", "bot"));
+
+        assertThat(matcher.matches("linkedinb0t robot")).isTrue();
+        assertThat(matcher.matches("linkedinbo")).isFalse();
+    }
+
+    @Test
+    void nonAsciiCharactersResetTheMatch() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("bot"));
+
+        assertThat(matcher.matches("böt")).isFalse();
+        assertThat(matcher.matches("boét")).isFalse();
+        assertThat(matcher.matches("ébot")).isTrue();
+    }
+
+    @Test
+    void emptyOrBlankPatternsNeverMatch() {
+        assertThat(MultiPatternMatcher.compile(List.of()).matches("anything")).isFalse();
+        assertThat(MultiPatternMatcher.compile(Arrays.asList("", "  ", null)).matches("anything")).isFalse();
+    }
+
+    @Test
+    void blankPatternsAreSkippedAlongsideRealOnes() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(Arrays.asList("", "bot", " ", null));
+
+        assertThat(matcher.matches("Googlebot/2.1")).isTrue();
+        assertThat(matcher.matches("Mozilla/5.0 Firefox/121.0")).isFalse();
+        assertThat(matcher.matches(" ")).isFalse();
+    }
+
+    @Test
+    void nullInputDoesNotMatch() {
+        assertThat(MultiPatternMatcher.compile(List.of("bot")).matches(null)).isFalse();
+    }
+
+    @Test
+    void rejectsNonAsciiPatterns() {
+        assertThatThrownBy(() -> MultiPatternMatcher.compile(List.of("röbot")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void agreesWithNaiveSubstringSearch() {
+        List<String> patterns = new BotDetectionProperties().getDenyPatterns();
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(patterns);
+        List<String> userAgents = List.of(
+                "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 Safari/605.1.15",
+                "Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)",
+                "facebookexternalhit/1.1",
+                "curl/8.4.0",
+                "Python-Requests/2.31",
+                "Java/21.0.1",
+                "Mozilla/5.0 (Linux; Android 14) Chrome/120.0 Mobile",
+                "WhatsApp/2.23.20.0",
+                "Mozilla/5.0 HeadlessChrome/120.0");
+
+        for (String userAgent : userAgents) {
+            String folded = userAgent.toLowerCase(Locale.ROOT);
+            boolean expected = patterns.stream().anyMatch(folded::contains);
+            assertThat(matcher.matches(userAgent)).as(userAgent).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.developer.analytics.ingestion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.developer.analytics.AnalyticsEventType;
+import com.developer.analytics.aggregation.DirtyPortfolioTracker;
+import com.developer.analytics.sketch.VisitorSketchProperties;
+import com.developer.analytics.sketch.VisitorSketchService;
+import com.developer.analytics.sketch.VisitorSketchStore;
+import com.developer.analytics.summary.LiveCountersProperties;
+import com.developer.analytics.summary.LiveSummaryCounters;
+import com.developer.analytics.visitor.VisitorDictionary;
+import com.developer.analytics.visitor.VisitorDictionaryProperties;
+import com.developer.analytics.visitor.VisitorDictionaryStore;
+
+/**
+ * Compares the events/sec of the three ways an analytics event can be written:
+ * one statement per event (what an unbatched ORM {@code save} costs), the multi-row INSERT of
+ * {@link AnalyticsEventBatchWriter} and the COPY load of {@link AnalyticsEventCopyLoader},
+ * at several batch sizes, so {@code copy-min-rows} can be set from measurements.
+ *
+ * <p>Not picked up by a plain {@code mvn test}; it needs a PostgreSQL database and migrates,
+ * fills and finally drops the {@code analytics_benchmark} schema in it:
+ * <pre>
+ * mvn test -Dtest=AnalyticsEventWriteBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Danalytics.benchmark.url=jdbc:postgresql://localhost:5432/portfolio_bench \
+ *     -Danalytics.benchmark.user=postgres -Danalytics.benchmark.password=postgres
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "analytics.benchmark.url", matches = ".+")
+class AnalyticsEventWriteBenchmark {
+
+    private static final String SCHEMA = "analytics_benchmark";
+    private static final int[] BATCH_SIZES = {100, 250, 500, 1_000, 2_500, 5_000};
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int TIMED_ROUNDS = 5;
+    private static final int PORTFOLIOS = 100;
+    private static final int VISITORS = 10_000;
+
+    private static final List<UUID> PORTFOLIO_IDS = new ArrayList<>();
+
+    private static Flyway flyway;
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static VisitorDictionary visitorDictionary;
+    private static AnalyticsEventCopyLoader copyLoader;
+    private static TransactionTemplate transactionTemplate;
+    private static AnalyticsIngestionProperties ingestionProperties;
+    private static AnalyticsEventBatchWriter batchWriter;
+
+    // Every event gets its own (portfolio, visitor) pair, so no write is rejected as a duplicate
+    private static long sequence;
+
+    @BeforeAll
+    static void setUp() {
+        String url = System.getProperty("analytics.benchmark.url");
+        String user = System.getProperty("analytics.benchmark.user", "postgres");
+        String password = System.getProperty("analytics.benchmark.password", "");
+
+        flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .schemas(SCHEMA)
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        // One connection for everything, so the COPY staging table lives as in production
+        dataSource = new SingleConnectionDataSource(url, user, password, true);
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("currentSchema", SCHEMA);
+        dataSource.setConnectionProperties(connectionProperties);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        for (int i = 0; i < PORTFOLIOS; i++) {
+            UUID id = UUID.randomUUID();
+            jdbcTemplate.update(
+                    "INSERT INTO users (id, email, username, password_hash) VALUES (?, ?, ?, 'x')",
+                    id, "bench-" + id + "@example.com", "bench-" + id);
+            PORTFOLIO_IDS.add(id);
+        }
+
+        visitorDictionary = new VisitorDictionary(new VisitorDictionaryStore(jdbcTemplate), new VisitorDictionaryProperties());
+        List<String> visitorIds = new ArrayList<>(VISITORS);
+        for (int i = 0; i < VISITORS; i++) {
+            visitorIds.add(visitorId(i));
+        }
+        // Keys are resolved up front so every mode hits the cache alike
+        visitorDictionary.resolveAll(visitorIds);
+
+        copyLoader = new AnalyticsEventCopyLoader(jdbcTemplate, dataSource, visitorDictionary);
+        ingestionProperties = new AnalyticsIngestionProperties();
+        batchWriter = new AnalyticsEventBatchWriter(
+                jdbcTemplate,
+                visitorDictionary,
+                copyLoader,
+                ingestionProperties,
+                new DirtyPortfolioTracker(jdbcTemplate),
+                new LiveSummaryCounters(jdbcTemplate, new LiveCountersProperties()),
+                new VisitorSketchService(new VisitorSketchStore(jdbcTemplate), new VisitorSketchProperties()));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+        if (flyway != null) {
+            flyway.clean();
+        }
+    }
+
+    @Test
+    void eventsPerSecond() {
+        System.out.printf("%10s %16s %16s %16s%n", "batch", "per-event", "multi-row", "copy");
+        for (int batchSize : BATCH_SIZES) {
+            double perEvent = measure(batchSize, AnalyticsEventWriteBenchmark::writePerEvent);
+            double multiRow = measure(batchSize, AnalyticsEventWriteBenchmark::writeMultiRow);
+            double copy = measure(batchSize, AnalyticsEventWriteBenchmark::writeCopy);
+            System.out.printf("%10d %16.0f %16.0f %16.0f%n", batchSize, perEvent, multiRow, copy);
+        }
+    }
+
+    /**
+     * @return The median events/sec over the timed rounds
+     */
+    private static double measure(int batchSize, Writer writer) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            writer.write(nextBatch(batchSize));
+        }
+        double[] rates = new double[TIMED_ROUNDS];
+        for (int i = 0; i < TIMED_ROUNDS; i++) {
+            List<PendingAnalyticsEvent> batch = nextBatch(batchSize);
+            long started = System.nanoTime();
+            int inserted = writer.write(batch);
+            long elapsed = System.nanoTime() - started;
+            assertThat(inserted).isEqualTo(batchSize);
+            rates[i] = batchSize * 1_000_000_000.0 / elapsed;
+        }
+        Arrays.sort(rates);
+        return rates[TIMED_ROUNDS / 2];
+    }
+
+    private static int writePerEvent(List<PendingAnalyticsEvent> batch) {
+        ingestionProperties.setCopyMinRows(0);
+        int inserted = 0;
+        for (PendingAnalyticsEvent event : batch) {
+            inserted += batchWriter.writeBatch(List.of(event));
+        }
+        return inserted;
+    }
+
+    private static int writeMultiRow(List<PendingAnalyticsEvent> batch) {
+        ingestionProperties.setCopyMinRows(0);
+        return batchWriter.writeBatch(batch);
+    }
+
+    private static int writeCopy(List<PendingAnalyticsEvent> batch) {
+        // Called directly: without the Spring proxy the loader's own transaction must be supplied
+        return transactionTemplate.execute(status -> copyLoader.load(batch).size());
+    }
+
+    private static List<PendingAnalyticsEvent> nextBatch(int size) {
+        List<PendingAnalyticsEvent> batch = new ArrayList<>(size);
+        Instant now = Instant.now();
+        for (int i = 0; i < size; i++) {
+            long n = sequence++;
+            batch.add(new PendingAnalyticsEvent(
+                    UUID.randomUUID(),
+                    PORTFOLIO_IDS.get((int) (n / VISITORS % PORTFOLIOS)),
+                    visitorId((int) (n % VISITORS)),
+                    n % 5 == 0 ? AnalyticsEventType.ENGAGED : AnalyticsEventType.VIEW,
+                    (int) (n % 300),
+                    (int) (n % 101),
+                    "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36",
+                    now));
+        }
+        return batch;
+    }
+
+    private static String visitorId(int i) {
+        return "benchmark-visitor-" + i;
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        int write(List<PendingAnalyticsEvent> batch);
+    }
+}
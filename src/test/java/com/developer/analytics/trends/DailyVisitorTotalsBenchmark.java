@@ -0,0 +1,150 @@
+package com.developer.analytics.trends;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.developer.config.SchedulerLeaseConfig;
+import com.developer.service.SchedulerLeaseService;
+
+/**
+ * Plans and times {@link AnalyticsTrendsService#DAILY_VISITOR_TOTALS_SQL} on a portfolio with
+ * 1M events spread over 90 days, once with every day still raw and once after the visitor
+ * rollups were refreshed.
+ *
+ * <p>Not picked up by a plain {@code mvn test}; it needs a PostgreSQL database and migrates,
+ * seeds and finally drops the {@code analytics_benchmark} schema in it:
+ * <pre>
+ * mvn test -Dtest=DailyVisitorTotalsBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Danalytics.benchmark.url=jdbc:postgresql://localhost:5432/portfolio_bench \
+ *     -Danalytics.benchmark.user=postgres -Danalytics.benchmark.password=postgres
+ * </pre>
+ * Prints the {@code EXPLAIN (ANALYZE, BUFFERS)} plan and the median wall time of each run.
+ */
+@EnabledIfSystemProperty(named = "analytics.benchmark.url", matches = ".+")
+class DailyVisitorTotalsBenchmark {
+
+    private static final String SCHEMA = "analytics_benchmark";
+    private static final int EVENTS = 1_000_000;
+    private static final int VISITORS = 200_000;
+    private static final int DAYS = 90;
+    private static final int TIMED_RUNS = 5;
+
+    private static final UUID PORTFOLIO = UUID.randomUUID();
+
+    private static Flyway flyway;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void seed() {
+        String url = System.getProperty("analytics.benchmark.url");
+        String user = System.getProperty("analytics.benchmark.user", "postgres");
+        String password = System.getProperty("analytics.benchmark.password", "");
+
+        flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .schemas(SCHEMA)
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, user, password);
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("currentSchema", SCHEMA);
+        dataSource.setConnectionProperties(connectionProperties);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.update(
+                "INSERT INTO users (id, email, username, password_hash) VALUES (?, ?, ?, 'x')",
+                PORTFOLIO, "bench-" + PORTFOLIO + "@example.com", "bench-" + PORTFOLIO);
+        jdbcTemplate.update(
+                "INSERT INTO analytics_visitor (visitor_id) SELECT 'visitor-' || g FROM generate_series(1, ?) g",
+                VISITORS);
+        // Roughly one ENGAGED per four VIEWs; the DEFAULT partition takes months the migrations did not create
+        jdbcTemplate.update("""
+                INSERT INTO portfolio_analytics_event
+                    (id, portfolio_user_id, visitor_key, event_type, duration_seconds, scroll_depth, user_agent, created_at)
+                SELECT
+                    gen_random_uuid(),
+                    ?,
+                    v.first_key + (g % ?),
+                    CASE WHEN g % 5 = 0 THEN 'ENGAGED' ELSE 'VIEW' END::analytics_event_type,
+                    g % 300,
+                    g % 101,
+                    'Mozilla/5.0',
+                    NOW() - make_interval(secs => (g::BIGINT * 7919) % (? * 86400))
+                FROM generate_series(1, ?) g,
+                    (SELECT MIN(id) AS first_key FROM analytics_visitor) v
+                """, PORTFOLIO, VISITORS, DAYS, EVENTS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    static void dropSchema() {
+        if (flyway != null) {
+            flyway.clean();
+        }
+    }
+
+    @Test
+    void dailyVisitorTotals() {
+        // Everything raw: the watermark sits before the first seeded day
+        jdbcTemplate.update(
+                "UPDATE portfolio_analytics_visitor_rollup_state SET rolled_up_before = CURRENT_DATE - ? WHERE id = 1",
+                DAYS + 1);
+        run("raw, 30 days", 30, "day");
+        run("raw, 90 days", DAYS, "day");
+        run("raw, 90 days by week", DAYS, "week");
+
+        SchedulerLeaseConfig leaseConfig = new SchedulerLeaseConfig();
+        leaseConfig.setEnabled(false);
+        SchedulerLeaseService leaseService = new SchedulerLeaseService(jdbcTemplate, leaseConfig);
+        try {
+            long started = System.nanoTime();
+            int rows = new VisitorTrendRollup(jdbcTemplate, new TrendRollupProperties())
+                    .refresh(leaseService.tryAcquire("analytics-benchmark").orElseThrow());
+            System.out.printf("visitor rollup refresh: %d rows in %d ms%n",
+                    rows, (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            leaseService.shutdown();
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        run("rolled up, 30 days", 30, "day");
+        run("rolled up, 90 days", DAYS, "day");
+        run("rolled up, 90 days by week", DAYS, "week");
+    }
+
+    private static void run(String label, int days, String granularity) {
+        Date from = Date.valueOf(LocalDate.now().minusDays(days - 1));
+        Date to = Date.valueOf(LocalDate.now().plusDays(1));
+        Object[] args = {PORTFOLIO, from, to, PORTFOLIO, from, to, PORTFOLIO, from, to, granularity};
+
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN (ANALYZE, BUFFERS) " + AnalyticsTrendsService.DAILY_VISITOR_TOTALS_SQL, String.class, args);
+
+        long[] millis = new long[TIMED_RUNS];
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long started = System.nanoTime();
+            jdbcTemplate.queryForList(AnalyticsTrendsService.DAILY_VISITOR_TOTALS_SQL, args);
+            millis[i] = (System.nanoTime() - started) / 1_000_000;
+        }
+        Arrays.sort(millis);
+
+        System.out.printf("=== %s: median %d ms (min %d, max %d) over %d runs%n",
+                label, millis[TIMED_RUNS / 2], millis[0], millis[TIMED_RUNS - 1], TIMED_RUNS);
+        plan.forEach(System.out::println);
+    }
+}